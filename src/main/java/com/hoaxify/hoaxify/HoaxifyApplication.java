@@ -8,6 +8,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
 
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 @SpringBootApplication
@@ -20,7 +21,7 @@ public class HoaxifyApplication {
     @Bean
     @Profile("dev")
     CommandLineRunner run(UserService userService) {
-        return args -> IntStream.rangeClosed(1, 15)
+        return args -> userService.saveAll(IntStream.rangeClosed(1, 15)
                 .mapToObj(i -> {
                     User user = new User();
                     user.setUsername("user" + i);
@@ -28,6 +29,6 @@ public class HoaxifyApplication {
                     user.setPassword("P4ssword");
                     return user;
                 })
-                .forEach(userService::save);
+                .collect(Collectors.toList()));
     }
 }
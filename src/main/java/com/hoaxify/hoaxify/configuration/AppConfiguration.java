@@ -1,8 +1,14 @@
 package com.hoaxify.hoaxify.configuration;
 
+import com.hoaxify.hoaxify.shared.PooledSequenceGenerator;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @Configuration
@@ -15,6 +21,82 @@ public class AppConfiguration {
 
     private String attachmentsFolder = "attachments";
 
+    private DataSize maxImageSize = DataSize.ofMegabytes(5);
+
+    private DataSize maxAttachmentSize = DataSize.ofMegabytes(100);
+
+    private int imageVariantThreads = 2;
+
+    private int imageVariantQueueCapacity = 100;
+
+    private long maxImagePixels = 25_000_000;
+
+    private int imageIoThreads = 4;
+
+    private int imageIoQueueCapacity = 100;
+
+    private boolean contentAddressedImages = false;
+
+    private boolean shardedUploads = false;
+
+    private boolean packedImages = false;
+
+    private String packedImagesFolder = "packed";
+
+    private DataSize packedSegmentSize = DataSize.ofMegabytes(64);
+
+    private double packedCompactionRatio = 0.5;
+
+    private Duration packedCompactionInterval = Duration.ofMinutes(1);
+
+    private DataSize imageCacheSize = DataSize.ofMegabytes(64);
+
+    private DataSize imageCacheMaxEntrySize = DataSize.ofKilobytes(512);
+
+    private Duration approximateCountRefresh = Duration.ofSeconds(30);
+
+    private int feedBufferSize = 1000;
+
+    private int idAllocationSize = PooledSequenceGenerator.DEFAULT_ALLOCATION_SIZE;
+
+    private boolean hoaxImportEnabled = false;
+
+    private boolean hoaxGroupCommit = false;
+
+    private int hoaxGroupCommitBatchSize = 50;
+
+    private Duration hoaxGroupCommitMaxLatency = Duration.ofMillis(2);
+
+    private int hoaxGroupCommitQueueCapacity = 1000;
+
+    private int streamQueueCapacity = 100;
+
+    private Duration streamHeartbeat = Duration.ofSeconds(15);
+
+    private Duration streamTimeout = Duration.ofMinutes(30);
+
+    private int streamDispatcherThreads = 4;
+
+    private Duration streamSendTimeout = Duration.ofSeconds(5);
+
+    private int usernameCacheSize = 10_000;
+
+    private Duration usernameCacheTtl = Duration.ofMinutes(10);
+
+    private long usernameFilterCapacity = 1_000_000;
+
+    private double usernameFilterFalsePositiveRate = 0.01;
+
+    private int principalCacheSize = 10_000;
+
+    private Duration principalCacheTtl = Duration.ofMinutes(5);
+
+    private long userEntityCacheSize = 10_000;
+
+    private List<String> tokenSecrets = new ArrayList<>();
+
+    private Duration tokenTtl = Duration.ofMinutes(15);
+
     public String getFullProfileImagesPath() {
         return this.uploadPath + "/" + this.profileImagesFolder;
     }
@@ -1,8 +1,11 @@
 package com.hoaxify.hoaxify.configuration;
 
+import com.hoaxify.hoaxify.shared.ExpiringCache;
 import com.hoaxify.hoaxify.user.User;
+import com.hoaxify.hoaxify.user.UserChangedEvent;
 import com.hoaxify.hoaxify.user.UserRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -11,15 +14,45 @@ import org.springframework.stereotype.Service;
 @Service
 public class AuthUserService implements UserDetailsService {
 
-    @Autowired
     UserRepository userRepository;
 
+    ExpiringCache<String, User> principalCache;
+
+    public AuthUserService(UserRepository userRepository, AppConfiguration appConfiguration, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.principalCache = new ExpiringCache<String, User>(appConfiguration.getPrincipalCacheSize(), appConfiguration.getPrincipalCacheTtl())
+                .bindTo(meterRegistry, "principals");
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username);
+        User user = principalCache.get(username, this::loadDetached);
         if (user == null) {
             throw new UsernameNotFoundException("User not found");
         }
         return user;
     }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        principalCache.invalidate(event.getUser().getUsername());
+    }
+
+    /**
+     * Copies the columns a principal needs so the cached instance holds no session or lazy {@code hoaxes} collection.
+     */
+    private User loadDetached(String username) {
+        User inDB = userRepository.findByUsername(username);
+        if (inDB == null) {
+            return null;
+        }
+        User user = new User();
+        user.setId(inDB.getId());
+        user.setUsername(inDB.getUsername());
+        user.setDisplayName(inDB.getDisplayName());
+        user.setPassword(inDB.getPassword());
+        user.setImage(inDB.getImage());
+        user.setImageVariantsReady(inDB.isImageVariantsReady());
+        return user;
+    }
 }
@@ -0,0 +1,65 @@
+package com.hoaxify.hoaxify.configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.hoaxify.hoaxify.shared.PooledSequenceGenerator;
+import com.hoaxify.hoaxify.user.User;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+@Configuration
+public class PersistenceConfiguration {
+
+    private static final List<String> USER_CACHE_REGIONS = List.of(User.ENTITY_CACHE, User.USERNAME_CACHE);
+
+    @Bean
+    public HibernatePropertiesCustomizer idAllocationSizeCustomizer(AppConfiguration appConfiguration) {
+        return properties -> properties.put(PooledSequenceGenerator.ALLOCATION_SIZE, appConfiguration.getIdAllocationSize());
+    }
+
+    /**
+     * Second-level cache regions, each bounded to {@code hoaxify.user-entity-cache-size} entries. Every application
+     * context gets its own manager, so contexts sharing a JVM never register the same cache names twice.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(AppConfiguration appConfiguration) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hoaxify-" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : USER_CACHE_REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(appConfiguration.getUserEntityCacheSize()));
+            configuration.setStatisticsEnabled(true);
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            // an entity cached in a region created on the fly would be unbounded
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    /**
+     * Publishes the regions as {@code cache.gets}, {@code cache.puts} and {@code cache.evictions}, like the other caches.
+     */
+    @Bean
+    public MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> USER_CACHE_REGIONS.forEach(region ->
+                JCacheMetrics.monitor(registry, hibernateCacheManager.getCache(region)));
+    }
+}
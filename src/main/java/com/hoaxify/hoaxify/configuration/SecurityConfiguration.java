@@ -11,6 +11,7 @@ import org.springframework.security.config.annotation.web.configuration.WebSecur
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
@@ -19,6 +20,9 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     @Autowired
     AuthUserService authUserService;
 
+    @Autowired
+    TokenService tokenService;
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http
@@ -29,12 +33,18 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
                 .and()
                 .authorizeRequests()
                 .antMatchers(HttpMethod.POST, "/api/1.0/login").authenticated()
+                .antMatchers(HttpMethod.POST, "/api/1.0/logout").authenticated()
                 .antMatchers(HttpMethod.PUT, "/api/1.0/users/{id:[0-9]+}").authenticated()
+                .antMatchers(HttpMethod.PUT, "/api/1.0/users/{id:[0-9]+}/image").authenticated()
                 .antMatchers(HttpMethod.POST, "/api/1.0/hoaxes").authenticated()
+                .antMatchers(HttpMethod.POST, "/api/1.0/hoaxes/import").authenticated()
+                .antMatchers("/api/1.0/hoaxes/attachments/**").authenticated()
                 .and()
                 .authorizeRequests().anyRequest().permitAll()
                 .and()
-                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                .and()
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService), BasicAuthenticationFilter.class);
     }
 
     @Override
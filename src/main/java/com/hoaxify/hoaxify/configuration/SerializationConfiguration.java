@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.io.IOException;
 
@@ -36,6 +37,26 @@ public class SerializationConfiguration {
                 generator.writeEndObject();
             }
         };
-        return new SimpleModule().addSerializer(Page.class, pageSerializer);
+        JsonSerializer<Slice> sliceSerializer = new JsonSerializer<>() {
+            @Override
+            public void serialize(Slice slice, JsonGenerator generator, SerializerProvider serializerProvider) throws IOException {
+                generator.writeStartObject();
+                generator.writeNumberField("numberOfElements", slice.getNumberOfElements());
+                generator.writeNumberField("number", slice.getNumber());
+                generator.writeNumberField("size", slice.getSize());
+
+                generator.writeBooleanField("first", slice.isFirst());
+                generator.writeBooleanField("last", slice.isLast());
+                generator.writeBooleanField("next", slice.hasNext());
+                generator.writeBooleanField("previous", slice.hasPrevious());
+
+                generator.writeFieldName("content");
+                serializerProvider.defaultSerializeValue(slice.getContent(), generator);
+                generator.writeEndObject();
+            }
+        };
+        return new SimpleModule()
+                .addSerializer(Page.class, pageSerializer)
+                .addSerializer(Slice.class, sliceSerializer);
     }
 }
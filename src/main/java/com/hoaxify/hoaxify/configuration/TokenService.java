@@ -0,0 +1,147 @@
+package com.hoaxify.hoaxify.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hoaxify.hoaxify.user.User;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues and verifies short-lived HMAC-SHA256 signed tokens, {@code <key id>.<claims>.<signature>}.
+ * The first configured secret signs, all of them verify, so a secret can be rotated by prepending a new one.
+ * Tokens of a user are revoked by moving the user's not-before mark on logout. Profile edits do not revoke: only the id
+ * claim is trusted for authorization, and the display claims catch up at the next login.
+ * <p>
+ * The not-before marks live in memory only, per instance. A restart forgets them, so a token revoked before it is
+ * accepted again until it expires; {@code hoaxify.token-ttl} bounds that window and should stay short.
+ */
+@Service
+public class TokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, byte[]> keys = new LinkedHashMap<>();
+
+    private final String signingKeyId;
+
+    private final long ttlMillis;
+
+    private final Map<Long, Long> notBefore = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper;
+
+    public TokenService(AppConfiguration appConfiguration, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.ttlMillis = appConfiguration.getTokenTtl().toMillis();
+        List<byte[]> secrets = new ArrayList<>();
+        appConfiguration.getTokenSecrets().forEach(secret -> secrets.add(secret.getBytes(StandardCharsets.UTF_8)));
+        if (secrets.isEmpty()) {
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            secrets.add(random);
+        }
+        secrets.forEach(secret -> keys.put(keyId(secret), secret));
+        this.signingKeyId = keyId(secrets.get(0));
+    }
+
+    public Token issue(User user) {
+        Claims claims = new Claims();
+        claims.setId(user.getId());
+        claims.setUsername(user.getUsername());
+        claims.setDisplayName(user.getDisplayName());
+        claims.setImage(user.getImage());
+        // strictly after the last revocation, so a token issued in the same millisecond as a logout stays valid
+        claims.setIssuedAt(Math.max(System.currentTimeMillis(), notBefore.getOrDefault(user.getId(), -1L) + 1));
+        claims.setExpiresAt(claims.getIssuedAt() + ttlMillis);
+        try {
+            String payload = signingKeyId + "." + ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+            String signature = ENCODER.encodeToString(sign(keys.get(signingKeyId), payload));
+            return new Token(payload + "." + signature, claims.getExpiresAt());
+        } catch (Exception e) {
+            throw new IllegalStateException("Token could not be issued", e);
+        }
+    }
+
+    /**
+     * @return a detached principal built from the token claims, or {@code null} if the token is not valid
+     */
+    public User verify(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 3 || !keys.containsKey(parts[0])) {
+            return null;
+        }
+        try {
+            byte[] expected = sign(keys.get(parts[0]), parts[0] + "." + parts[1]);
+            if (!MessageDigest.isEqual(expected, DECODER.decode(parts[2]))) {
+                return null;
+            }
+            Claims claims = objectMapper.readValue(DECODER.decode(parts[1]), Claims.class);
+            long now = System.currentTimeMillis();
+            if (claims.getExpiresAt() <= now || claims.getIssuedAt() <= notBefore.getOrDefault(claims.getId(), -1L)) {
+                return null;
+            }
+            User user = new User();
+            user.setId(claims.getId());
+            user.setUsername(claims.getUsername());
+            user.setDisplayName(claims.getDisplayName());
+            user.setImage(claims.getImage());
+            return user;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public void revokeAll(long userId) {
+        // never moves back, a clock step backwards must not revive revoked tokens
+        notBefore.merge(userId, System.currentTimeMillis(), Math::max);
+    }
+
+    private static byte[] sign(byte[] key, String payload) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(new SecretKeySpec(key, ALGORITHM));
+        return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String keyId(byte[] secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret);
+            return ENCODER.encodeToString(digest).substring(0, 8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Data
+    public static class Token {
+        private final String value;
+        private final long expiresAt;
+    }
+
+    @Data
+    @NoArgsConstructor
+    static class Claims {
+        private long id;
+        private String username;
+        private String displayName;
+        private String image;
+        private long issuedAt;
+        private long expiresAt;
+    }
+}
@@ -2,14 +2,13 @@ package com.hoaxify.hoaxify.configuration;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.convert.ApplicationConversionService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.CacheControl;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.format.FormatterRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.io.File;
-import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebConfiguration implements WebMvcConfigurer {
@@ -18,10 +17,9 @@ public class WebConfiguration implements WebMvcConfigurer {
     private AppConfiguration appConfiguration;
 
     @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/images/**")
-                .addResourceLocations("file:" + appConfiguration.getUploadPath() + "/")
-                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS));
+    public void addFormatters(FormatterRegistry registry) {
+        // case-insensitive enum request params, e.g. ?totals=none
+        ApplicationConversionService.addApplicationConverters(registry);
     }
 
     @Bean
@@ -0,0 +1,12 @@
+package com.hoaxify.hoaxify.file;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class AttachmentTooLargeException extends RuntimeException {
+
+    public AttachmentTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,48 @@
+package com.hoaxify.hoaxify.file;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.hoaxify.hoaxify.user.User;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Date;
+
+/**
+ * A file uploaded in chunks for a hoax. Until {@code completed} the bytes live in {@code <name>.part}, and
+ * {@code received} is the contiguous prefix already written, which is where an interrupted upload resumes.
+ */
+@Data
+@Entity
+public class FileAttachment {
+
+    @Id
+    @GeneratedValue
+    private long id;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date date;
+
+    private String name;
+
+    private String fileType;
+
+    private long size;
+
+    private long received;
+
+    private boolean completed;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    private User user;
+}
@@ -0,0 +1,52 @@
+package com.hoaxify.hoaxify.file;
+
+import com.hoaxify.hoaxify.file.vm.AttachmentUploadVM;
+import com.hoaxify.hoaxify.file.vm.FileAttachmentVM;
+import com.hoaxify.hoaxify.shared.CurrentUser;
+import com.hoaxify.hoaxify.user.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/1.0/hoaxes/attachments")
+public class FileAttachmentController {
+
+    @Autowired
+    FileAttachmentService fileAttachmentService;
+
+    @PostMapping
+    FileAttachmentVM initUpload(@Valid @RequestBody AttachmentUploadVM upload, @CurrentUser User user) throws IOException {
+        return new FileAttachmentVM(fileAttachmentService.init(user, upload.getSize()));
+    }
+
+    @GetMapping("/{id:[0-9]+}")
+    FileAttachmentVM getUpload(@PathVariable long id, @CurrentUser User user) {
+        return new FileAttachmentVM(fileAttachmentService.getUpload(user, id));
+    }
+
+    @PutMapping(path = "/{id:[0-9]+}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    FileAttachmentVM putChunk(@PathVariable long id, @RequestParam(name = "offset", defaultValue = "0") long offset,
+                              HttpServletRequest request, @CurrentUser User user) throws IOException {
+        try (InputStream chunk = request.getInputStream()) {
+            return new FileAttachmentVM(fileAttachmentService.writeChunk(user, id, offset, chunk));
+        }
+    }
+
+    @PostMapping("/{id:[0-9]+}/complete")
+    FileAttachmentVM completeUpload(@PathVariable long id, @CurrentUser User user) throws IOException {
+        return new FileAttachmentVM(fileAttachmentService.complete(user, id));
+    }
+}
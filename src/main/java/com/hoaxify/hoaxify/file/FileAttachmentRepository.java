@@ -0,0 +1,6 @@
+package com.hoaxify.hoaxify.file;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface FileAttachmentRepository extends JpaRepository<FileAttachment, Long> {
+}
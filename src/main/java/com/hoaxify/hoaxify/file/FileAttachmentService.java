@@ -0,0 +1,134 @@
+package com.hoaxify.hoaxify.file;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.error.BadRequestException;
+import com.hoaxify.hoaxify.error.NotFoundException;
+import com.hoaxify.hoaxify.user.User;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Resumable chunked uploads: {@link #init} reserves the attachment, {@link #writeChunk} writes bytes at an offset
+ * with positional writes, and {@link #complete} moves the finished file into place for serving.
+ */
+@Service
+public class FileAttachmentService {
+
+    private static final int CHUNK_BUFFER_SIZE = 64 * 1024;
+
+    FileAttachmentRepository fileAttachmentRepository;
+
+    FileService fileService;
+
+    AppConfiguration appConfiguration;
+
+    public FileAttachmentService(FileAttachmentRepository fileAttachmentRepository, FileService fileService,
+                                 AppConfiguration appConfiguration) {
+        this.fileAttachmentRepository = fileAttachmentRepository;
+        this.fileService = fileService;
+        this.appConfiguration = appConfiguration;
+    }
+
+    public FileAttachment init(User user, long size) throws IOException {
+        long maxBytes = appConfiguration.getMaxAttachmentSize().toBytes();
+        if (size > maxBytes) {
+            throw new AttachmentTooLargeException("Attachment exceeds " + maxBytes + " bytes");
+        }
+        FileAttachment attachment = new FileAttachment();
+        attachment.setName(UUID.randomUUID().toString().replaceAll("-", ""));
+        attachment.setDate(new Date());
+        attachment.setSize(size);
+        attachment.setUser(user);
+        Path part = fileService.attachmentPartPath(attachment.getName());
+        Files.createDirectories(part.getParent());
+        Files.createFile(part);
+        return fileAttachmentRepository.save(attachment);
+    }
+
+    public FileAttachment getUpload(User user, long id) {
+        FileAttachment attachment = fileAttachmentRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Attachment " + id + " not found"));
+        if (attachment.getUser() == null || attachment.getUser().getId() != user.getId()) {
+            throw new AccessDeniedException("Attachment belongs to another user");
+        }
+        return attachment;
+    }
+
+    /**
+     * Writes a chunk starting at {@code offset}, which may repeat already received bytes but not leave a gap.
+     * The body is read and written without a lock, since positional writes of the same upload never interfere and
+     * {@code offset} was checked against bytes already received; only the row update takes {@link FileService#lockFor},
+     * so a slow client never holds a stripe shared with profile image commits.
+     */
+    public FileAttachment writeChunk(User user, long id, long offset, InputStream content) throws IOException {
+        FileAttachment attachment = getUpload(user, id);
+        if (attachment.isCompleted()) {
+            throw new BadRequestException("Attachment " + id + " is already complete");
+        }
+        if (offset < 0 || offset > attachment.getReceived()) {
+            throw new BadRequestException("Chunk must start between 0 and " + attachment.getReceived());
+        }
+        long position = offset;
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BUFFER_SIZE);
+        try (FileChannel out = FileChannel.open(fileService.attachmentPartPath(attachment.getName()), StandardOpenOption.WRITE);
+             ReadableByteChannel in = Channels.newChannel(content)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                if (position + buffer.remaining() > attachment.getSize()) {
+                    throw new AttachmentTooLargeException("Chunk ends after the declared size " + attachment.getSize());
+                }
+                while (buffer.hasRemaining()) {
+                    position += out.write(buffer, position);
+                }
+                buffer.clear();
+            }
+        } catch (NoSuchFileException e) {
+            throw new BadRequestException("Attachment " + id + " is already complete");
+        }
+        synchronized (fileService.lockFor(attachment.getName())) {
+            attachment = getUpload(user, id);
+            if (attachment.isCompleted()) {
+                throw new BadRequestException("Attachment " + id + " is already complete");
+            }
+            attachment.setReceived(Math.max(attachment.getReceived(), position));
+            return fileAttachmentRepository.save(attachment);
+        }
+    }
+
+    public FileAttachment complete(User user, long id) throws IOException {
+        FileAttachment attachment = getUpload(user, id);
+        synchronized (fileService.lockFor(attachment.getName())) {
+            attachment = getUpload(user, id);
+            if (attachment.isCompleted()) {
+                return attachment;
+            }
+            if (attachment.getReceived() != attachment.getSize()) {
+                throw new BadRequestException("Received " + attachment.getReceived() + " of " + attachment.getSize() + " bytes");
+            }
+            Path part = fileService.attachmentPartPath(attachment.getName());
+            byte[] header = new byte[FileService.TYPE_HEADER_SIZE];
+            try (InputStream in = Files.newInputStream(part)) {
+                header = in.readNBytes(header.length);
+            }
+            Path target = fileService.attachmentPath(attachment.getName());
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+            attachment.setFileType(fileService.detectType(header));
+            attachment.setCompleted(true);
+            return fileAttachmentRepository.save(attachment);
+        }
+    }
+}
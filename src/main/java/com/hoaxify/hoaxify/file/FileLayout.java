@@ -0,0 +1,49 @@
+package com.hoaxify.hoaxify.file;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Where a stored file lives inside an upload folder. The flat layout keeps every file directly in the folder, the
+ * sharded one fans out into two levels of directories named after the first four characters of the file name,
+ * e.g. {@code profile/3f/a9/3fa9...}. Stored names are random or content hashes, so the prefixes spread evenly and a
+ * variant such as {@code <image>_32} lands next to its original.
+ */
+public final class FileLayout {
+
+    private FileLayout() {
+    }
+
+    public static Path flat(Path folder, String name) {
+        return folder.resolve(name);
+    }
+
+    public static Path sharded(Path folder, String name) {
+        if (name.length() < 4) {
+            return folder.resolve(name);
+        }
+        return folder.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    public static Path target(Path folder, String name, boolean sharded) {
+        return sharded ? sharded(folder, name) : flat(folder, name);
+    }
+
+    /**
+     * Finds a file in either layout, preferred one first. The preferred location is checked again last, so a file
+     * moved by a running migration between the first two checks is still found.
+     *
+     * @return the existing path, or {@code null}
+     */
+    public static Path locate(Path folder, String name, boolean sharded) {
+        Path preferred = target(folder, name, sharded);
+        if (Files.isRegularFile(preferred)) {
+            return preferred;
+        }
+        Path other = target(folder, name, !sharded);
+        if (Files.isRegularFile(other)) {
+            return other;
+        }
+        return Files.isRegularFile(preferred) ? preferred : null;
+    }
+}
@@ -0,0 +1,99 @@
+package com.hoaxify.hoaxify.file;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves stored files into the layout selected by {@code hoaxify.sharded-uploads}. Started in the background with
+ * {@code --migrate-image-layout}; the application keeps serving meanwhile because reads resolve both layouts.
+ */
+@Component
+public class FileLayoutMigration implements ApplicationRunner {
+
+    public static final String OPTION = "migrate-image-layout";
+
+    private static final Logger log = LoggerFactory.getLogger(FileLayoutMigration.class);
+
+    private final AppConfiguration appConfiguration;
+
+    public FileLayoutMigration(AppConfiguration appConfiguration) {
+        this.appConfiguration = appConfiguration;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        Thread migration = new Thread(() -> {
+            try {
+                log.info("Migrated {} files to the {} layout", migrateAll(),
+                        appConfiguration.isShardedUploads() ? "sharded" : "flat");
+            } catch (IOException e) {
+                log.error("Upload layout migration failed", e);
+            }
+        }, "upload-layout-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    public int migrateAll() throws IOException {
+        boolean sharded = appConfiguration.isShardedUploads();
+        return migrate(Paths.get(appConfiguration.getFullProfileImagesPath()), sharded)
+                + migrate(Paths.get(appConfiguration.getFullAttachmentsPath()), sharded);
+    }
+
+    /**
+     * @return the number of files moved
+     */
+    public int migrate(Path folder, boolean toSharded) throws IOException {
+        if (!Files.isDirectory(folder)) {
+            return 0;
+        }
+        int moved = 0;
+        if (toSharded) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, Files::isRegularFile)) {
+                for (Path file : files) {
+                    moved += move(file, FileLayout.sharded(folder, file.getFileName().toString()));
+                }
+            }
+        } else {
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(folder, 3)) {
+                files = walk.filter(file -> folder.relativize(file).getNameCount() == 3 && Files.isRegularFile(file))
+                        .collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                moved += move(file, FileLayout.flat(folder, file.getFileName().toString()));
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Leaves temporary files and in-progress attachment parts where they are; their writers hold the old path.
+     */
+    private static int move(Path file, Path target) throws IOException {
+        String name = file.getFileName().toString();
+        if (file.equals(target) || name.endsWith(".tmp") || name.endsWith(".part")) {
+            return 0;
+        }
+        Files.createDirectories(target.getParent());
+        Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return 1;
+    }
+}
@@ -1,45 +1,299 @@
 package com.hoaxify.hoaxify.file;
 
 import com.hoaxify.hoaxify.configuration.AppConfiguration;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CharSequenceInputStream;
 import org.apache.tika.Tika;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.UUID;
 
 @Service
 public class FileService {
 
+    /**
+     * Enough leading bytes for the PNG and JPEG signatures.
+     */
+    public static final int TYPE_HEADER_SIZE = 32;
+
+    private static final int LOCK_STRIPES = 64;
+
     AppConfiguration appConfiguration;
     Tika tika;
+    ImageCache imageCache;
+    PackedImageStore packedImageStore;
+    Object[] imageLocks = new Object[LOCK_STRIPES];
 
     public FileService(AppConfiguration appConfiguration) {
+        this(appConfiguration, new ImageCache(appConfiguration), new PackedImageStore(appConfiguration));
+    }
+
+    @Autowired
+    public FileService(AppConfiguration appConfiguration, ImageCache imageCache, PackedImageStore packedImageStore) {
         this.appConfiguration = appConfiguration;
+        this.imageCache = imageCache;
+        this.packedImageStore = packedImageStore;
         this.tika = new Tika();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            imageLocks[i] = new Object();
+        }
     }
 
     public String saveProfileImage(String base64Image) throws IOException {
-        String imageName = UUID.randomUUID().toString().replaceAll("-", "");
-        byte[] decodedBytes = Base64.getDecoder().decode(base64Image);
-        File target = new File(appConfiguration.getFullProfileImagesPath() + "/" + imageName);
-        FileUtils.writeByteArrayToFile(target, decodedBytes);
-        return imageName;
+        try (InputStream decoded = decodeBase64(base64Image)) {
+            return saveProfileImage(decoded);
+        }
+    }
+
+    public StagedImage stageProfileImage(String base64Image) throws IOException {
+        try (InputStream decoded = decodeBase64(base64Image)) {
+            return stageProfileImage(decoded);
+        }
     }
 
+    private static InputStream decodeBase64(String base64) {
+        return Base64.getDecoder().wrap(new CharSequenceInputStream(base64, StandardCharsets.US_ASCII));
+    }
+
+    public String saveProfileImage(InputStream content) throws IOException {
+        StagedImage staged = stageProfileImage(content);
+        try {
+            commit(staged);
+        } finally {
+            discard(staged);
+        }
+        return staged.getName();
+    }
+
+    /**
+     * Sniffs the type from the first bytes, then streams the content through a {@link FileChannel} into a temp file
+     * in the profile folder, so the heap only holds copy buffers and a reader never sees a partial image.
+     * Content over {@code hoaxify.max-image-size} is rejected with {@link ImageTooLargeException}.
+     * In content-addressed mode the image is named by the SHA-256 of its bytes, otherwise by a random UUID.
+     */
+    public StagedImage stageProfileImage(InputStream content) throws IOException {
+        long maxBytes = appConfiguration.getMaxImageSize().toBytes();
+        byte[] header = content.readNBytes(TYPE_HEADER_SIZE);
+        String type = detectType(header);
+        if (!isSupportedImageType(type)) {
+            throw new UnsupportedImageTypeException(type);
+        }
+        MessageDigest digest = isContentAddressed() ? sha256() : null;
+        InputStream source = content;
+        if (digest != null) {
+            digest.update(header);
+            source = new DigestInputStream(content, digest);
+        }
+        Path folder = Paths.get(appConfiguration.getFullProfileImagesPath());
+        Path temp = Files.createTempFile(folder, "upload", ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 ReadableByteChannel in = Channels.newChannel(source)) {
+                long position = out.write(ByteBuffer.wrap(header));
+                long transferred;
+                while (position <= maxBytes
+                        && (transferred = out.transferFrom(in, position, maxBytes + 1 - position)) > 0) {
+                    position += transferred;
+                }
+                if (position > maxBytes) {
+                    throw new ImageTooLargeException(maxBytes);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        String imageName = digest != null
+                ? String.format("%064x", new BigInteger(1, digest.digest()))
+                : UUID.randomUUID().toString().replaceAll("-", "");
+        return new StagedImage(imageName, temp);
+    }
+
+    /**
+     * Moves a staged image into place, or appends it to the {@link PackedImageStore} in packed mode. Callers that
+     * must not race a reference-counted delete of the same content-addressed name hold {@link #lockFor} around this
+     * and the row update.
+     */
+    public void commit(StagedImage staged) throws IOException {
+        if (isPacked()) {
+            packedImageStore.put(staged.getName(), staged.getTemp());
+            return;
+        }
+        Path target = profileImagePath(staged.getName());
+        Files.createDirectories(target.getParent());
+        Files.move(staged.getTemp(), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public void discard(StagedImage staged) {
+        try {
+            Files.deleteIfExists(staged.getTemp());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return where a profile image with this name is written in the configured layout
+     */
+    public Path profileImagePath(String name) {
+        return FileLayout.target(Paths.get(appConfiguration.getFullProfileImagesPath()), name, isSharded());
+    }
+
+    /**
+     * @return the existing profile image in either layout, or {@code null}
+     */
+    public Path findProfileImage(String name) {
+        return findUpload(appConfiguration.getProfileImagesFolder(), name);
+    }
+
+    /**
+     * Opens a stored profile image from either backend.
+     *
+     * @return the content, or {@code null} when there is no such image
+     */
+    public InputStream openProfileImage(String name) throws IOException {
+        ByteBuffer packed = findPackedUpload(appConfiguration.getProfileImagesFolder(), name);
+        if (packed != null) {
+            return new ByteArrayInputStream(toArray(packed));
+        }
+        Path file = findProfileImage(name);
+        return file != null ? Files.newInputStream(file) : null;
+    }
+
+    /**
+     * Looks {@code /images/<folder>/<name>} up in the packed store. Only profile images are packed, and images
+     * written before packed mode was switched on stay plain files.
+     *
+     * @return a read-only view of the bytes, or {@code null}
+     */
+    public ByteBuffer findPackedUpload(String folder, String name) {
+        if (!isPacked() || !folder.equals(appConfiguration.getProfileImagesFolder())) {
+            return null;
+        }
+        return packedImageStore.get(name);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] content = new byte[buffer.remaining()];
+        buffer.duplicate().get(content);
+        return content;
+    }
+
+    /**
+     * Resolves {@code /images/<folder>/<name>} against the upload folders in either layout.
+     *
+     * @return the existing file, or {@code null} for unknown folders, unsafe names and missing files
+     */
+    public Path findUpload(String folder, String name) {
+        if (!folder.equals(appConfiguration.getProfileImagesFolder()) && !folder.equals(appConfiguration.getAttachmentsFolder())) {
+            return null;
+        }
+        if (name.isEmpty() || name.contains("/") || name.contains("\\") || name.contains("..")
+                || name.endsWith(".part") || name.endsWith(".tmp")) {
+            return null;
+        }
+        return FileLayout.locate(Paths.get(appConfiguration.getUploadPath(), folder), name, isSharded());
+    }
+
+    public Path attachmentPath(String name) {
+        return FileLayout.target(Paths.get(appConfiguration.getFullAttachmentsPath()), name, isSharded());
+    }
+
+    /**
+     * Where an attachment is written while its upload is in progress; never served. Parts are not migrated, so one
+     * started under the other layout is found where it was created.
+     */
+    public Path attachmentPartPath(String name) {
+        Path existing = FileLayout.locate(Paths.get(appConfiguration.getFullAttachmentsPath()), name + ".part", isSharded());
+        return existing != null ? existing : attachmentPath(name + ".part");
+    }
+
+    public boolean isSharded() {
+        return appConfiguration.isShardedUploads();
+    }
+
+    public boolean isPacked() {
+        return appConfiguration.isPackedImages();
+    }
+
+    public boolean isContentAddressed() {
+        return appConfiguration.isContentAddressedImages();
+    }
+
+    public Object lockFor(String image) {
+        return imageLocks[Math.floorMod(image.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Checks the known image signatures first and only falls back to Tika for anything else.
+     */
     public String detectType(byte[] fileArr) {
-        return tika.detect(fileArr);
+        String type = ImageSignatures.detect(fileArr);
+        return type != null ? type : tika.detect(fileArr);
+    }
+
+    /**
+     * Detects the type of a Base64 encoded file by decoding only its leading characters.
+     */
+    public String detectTypeOfBase64(String base64) {
+        int prefix = Math.min(base64.length(), (TYPE_HEADER_SIZE + 2) / 3 * 4);
+        return detectType(Base64.getDecoder().decode(base64.substring(0, prefix)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public boolean isSupportedImageType(String type) {
+        return type.equalsIgnoreCase("image/png") || type.equalsIgnoreCase("image/jpeg");
     }
 
     public void deleteProfileImage(String image) {
+        if (image == null) {
+            return;
+        }
+        Path folder = Paths.get(appConfiguration.getFullProfileImagesPath());
+        String cacheKey = appConfiguration.getProfileImagesFolder() + "/";
         try {
-            Files.deleteIfExists(Paths.get(appConfiguration.getFullProfileImagesPath() + "/" + image));
+            deleteStored(folder, image);
+            imageCache.invalidate(cacheKey + image);
+            for (int size : ImageVariants.SIZES) {
+                deleteStored(folder, ImageVariants.name(image, size));
+                imageCache.invalidate(cacheKey + ImageVariants.name(image, size));
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    private void deleteStored(Path folder, String name) throws IOException {
+        if (isPacked()) {
+            packedImageStore.delete(name);
+        }
+        Files.deleteIfExists(FileLayout.flat(folder, name));
+        Files.deleteIfExists(FileLayout.sharded(folder, name));
+    }
 }
@@ -0,0 +1,75 @@
+package com.hoaxify.hoaxify.file;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU of served upload bytes bounded by their total size rather than the entry count.
+ * Keys are {@code <folder>/<name>}; stored files are never rewritten with different content, only deleted.
+ */
+@Component
+public class ImageCache {
+
+    private final long maxBytes;
+
+    private final long maxEntryBytes;
+
+    private final LinkedHashMap<String, CachedImage> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+
+    public ImageCache(AppConfiguration appConfiguration) {
+        this.maxBytes = appConfiguration.getImageCacheSize().toBytes();
+        this.maxEntryBytes = Math.min(maxBytes, appConfiguration.getImageCacheMaxEntrySize().toBytes());
+    }
+
+    public boolean accepts(long size) {
+        return size <= maxEntryBytes;
+    }
+
+    public synchronized CachedImage get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, CachedImage image) {
+        if (!accepts(image.getContent().length)) {
+            return;
+        }
+        CachedImage previous = entries.put(key, image);
+        if (previous != null) {
+            bytes -= previous.getContent().length;
+        }
+        bytes += image.getContent().length;
+        Iterator<Map.Entry<String, CachedImage>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().getContent().length;
+            eldest.remove();
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        CachedImage removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.getContent().length;
+        }
+    }
+
+    @Getter
+    public static class CachedImage {
+        private final byte[] content;
+        private final String etag;
+        private final MediaType mediaType;
+
+        public CachedImage(byte[] content, String etag, MediaType mediaType) {
+            this.content = content;
+            this.etag = etag;
+            this.mediaType = mediaType;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.hoaxify.hoaxify.file;
+
+import com.hoaxify.hoaxify.error.NotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves uploads under {@code /images/<folder>/<name>}. Packed profile images are written straight from their mapped
+ * segment. Small files are answered from {@link ImageCache}; larger ones go out through Tomcat's sendfile when the
+ * connector supports it, or {@link FileChannel#transferTo} otherwise.
+ * Stored files are immutable, so they carry a one-year max-age and a strong ETag from their size and modification time.
+ * A single {@code bytes=} range is honoured so large attachments can be resumed or seeked; multi-range requests get
+ * the whole file.
+ * Only raster image types are rendered inline; anything else, such as an attachment sniffed as HTML, is sent as a
+ * download, and {@code nosniff} stops the browser second-guessing the declared type.
+ */
+@RestController
+public class ImageController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS);
+
+    private static final Set<MediaType> INLINE_TYPES = Set.of(MediaType.IMAGE_PNG, MediaType.IMAGE_JPEG,
+            MediaType.IMAGE_GIF, MediaType.parseMediaType("image/webp"));
+
+    @Autowired
+    FileService fileService;
+
+    @Autowired
+    ImageCache imageCache;
+
+    @GetMapping("/images/{folder}/{name:.+}")
+    void getImage(@PathVariable String folder, @PathVariable String name,
+                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String key = folder + "/" + name;
+        ImageCache.CachedImage cached = imageCache.get(key);
+        if (cached != null) {
+            if (notModified(request, response, cached.getEtag())) {
+                return;
+            }
+            byte[] content = cached.getContent();
+            long[] range = range(request, response, cached.getEtag(), content.length);
+            if (range == UNSATISFIABLE) {
+                return;
+            }
+            writeHeaders(response, cached.getEtag(), cached.getMediaType(), range[1] - range[0]);
+            response.getOutputStream().write(content, (int) range[0], (int) (range[1] - range[0]));
+            return;
+        }
+        ByteBuffer packed = fileService.findPackedUpload(folder, name);
+        if (packed != null) {
+            writePacked(name, packed, request, response);
+            return;
+        }
+        Path file = fileService.findUpload(folder, name);
+        if (file == null) {
+            throw new NotFoundException(name + " not found");
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis()) + "\"";
+        if (notModified(request, response, etag)) {
+            return;
+        }
+        long[] range = range(request, response, etag, size);
+        if (range == UNSATISFIABLE) {
+            return;
+        }
+        long start = range[0];
+        long end = range[1];
+        if (imageCache.accepts(size)) {
+            byte[] content = Files.readAllBytes(file);
+            MediaType mediaType = mediaType(name, content);
+            imageCache.put(key, new ImageCache.CachedImage(content, etag, mediaType));
+            writeHeaders(response, etag, mediaType, end - start);
+            response.getOutputStream().write(content, (int) start, (int) (end - start));
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            ByteBuffer header = ByteBuffer.allocate(FileService.TYPE_HEADER_SIZE);
+            channel.read(header, 0);
+            writeHeaders(response, etag, mediaType(name, header.array()), end - start);
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end);
+                return;
+            }
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, out);
+            }
+        }
+    }
+
+    /**
+     * Packed images are never rewritten under the same name, so their length and name identify the content even
+     * after compaction moves the record.
+     */
+    private void writePacked(String name, ByteBuffer content, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        String etag = "\"" + Integer.toHexString(content.remaining()) + "-" + Integer.toHexString(name.hashCode()) + "\"";
+        if (notModified(request, response, etag)) {
+            return;
+        }
+        long[] range = range(request, response, etag, content.remaining());
+        if (range == UNSATISFIABLE) {
+            return;
+        }
+        ByteBuffer header = content.duplicate();
+        header.limit(Math.min(header.limit(), FileService.TYPE_HEADER_SIZE));
+        byte[] headerBytes = new byte[header.remaining()];
+        header.get(headerBytes);
+        writeHeaders(response, etag, mediaType(name, headerBytes), range[1] - range[0]);
+        ByteBuffer body = content.duplicate();
+        body.position((int) range[0]).limit((int) range[1]);
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        while (body.hasRemaining()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Resolves the requested byte range as {@code [start, end)}, the whole file when there is no usable Range header
+     * (or If-Range no longer matches), or {@link #UNSATISFIABLE} after answering 416.
+     */
+    private static long[] range(HttpServletRequest request, HttpServletResponse response, String etag, long size) {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        long[] whole = {0, size};
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return whole;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.trim().equals(etag)) {
+            return whole;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return whole;
+        }
+        long start;
+        long end;
+        try {
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                start = Math.max(0, size - suffix);
+                end = suffix == 0 ? 0 : size;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size : Math.min(size, Long.parseLong(spec.substring(dash + 1)) + 1);
+            }
+        } catch (NumberFormatException e) {
+            return whole;
+        }
+        if (start >= size || start >= end) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            return UNSATISFIABLE;
+        }
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + size);
+        return new long[]{start, end};
+    }
+
+    private static boolean notModified(HttpServletRequest request, HttpServletResponse response, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                response.setHeader(HttpHeaders.ETAG, etag);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL.getHeaderValue());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeHeaders(HttpServletResponse response, String etag, MediaType mediaType, long length) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL.getHeaderValue());
+        response.setContentType(mediaType.toString());
+        response.setContentLengthLong(length);
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        if (!INLINE_TYPES.contains(mediaType)) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().build().toString());
+        }
+    }
+
+    private MediaType mediaType(String name, byte[] header) {
+        return MediaTypeFactory.getMediaType(name)
+                .orElseGet(() -> MediaType.parseMediaType(fileService.detectType(header)));
+    }
+}
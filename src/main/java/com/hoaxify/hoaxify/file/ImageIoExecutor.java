@@ -0,0 +1,75 @@
+package com.hoaxify.hoaxify.file;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.error.ServiceUnavailableException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs image file I/O on a small bounded pool so a stalled disk ties up these threads instead of Tomcat's.
+ * When the queue is full the task is refused with {@link ServiceUnavailableException} rather than queued without
+ * bound. With {@code hoaxify.image-io-threads} set to 0 tasks run on the calling thread.
+ */
+@Component
+public class ImageIoExecutor {
+
+    private final ThreadPoolExecutor workers;
+
+    public ImageIoExecutor(AppConfiguration appConfiguration) {
+        int threads = appConfiguration.getImageIoThreads();
+        if (threads > 0) {
+            AtomicInteger count = new AtomicInteger();
+            this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(appConfiguration.getImageIoQueueCapacity()),
+                    runnable -> new Thread(runnable, "image-io-" + count.incrementAndGet()));
+        } else {
+            this.workers = null;
+        }
+    }
+
+    /**
+     * @return completes with the task result, or exceptionally with {@link ImageStorageException} for I/O errors
+     */
+    public <T> CompletableFuture<T> submit(IoTask<T> task) {
+        try {
+            return workers != null
+                    ? CompletableFuture.supplyAsync(() -> run(task), workers)
+                    : CompletableFuture.completedFuture(run(task));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new ServiceUnavailableException("Image storage is busy"));
+        } catch (CompletionException e) {
+            return CompletableFuture.failedFuture(e.getCause());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static <T> T run(IoTask<T> task) {
+        try {
+            return task.call();
+        } catch (IOException e) {
+            throw new CompletionException(new ImageStorageException("Storing the image failed", e));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    public interface IoTask<T> {
+        T call() throws IOException;
+    }
+}
@@ -0,0 +1,53 @@
+package com.hoaxify.hoaxify.file;
+
+/**
+ * Recognizes the image formats we care about from their leading magic bytes, without allocating.
+ */
+public final class ImageSignatures {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+    private static final byte[] GIF87A = {'G', 'I', 'F', '8', '7', 'a'};
+
+    private static final byte[] GIF89A = {'G', 'I', 'F', '8', '9', 'a'};
+
+    private static final byte[] RIFF = {'R', 'I', 'F', 'F'};
+
+    private static final byte[] WEBP = {'W', 'E', 'B', 'P'};
+
+    private ImageSignatures() {
+    }
+
+    /**
+     * @return the media type of a PNG, JPEG, GIF or WebP header, or {@code null} for anything else
+     */
+    public static String detect(byte[] header) {
+        if (startsWith(header, 0, PNG)) {
+            return "image/png";
+        }
+        if (startsWith(header, 0, JPEG)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, 0, GIF89A) || startsWith(header, 0, GIF87A)) {
+            return "image/gif";
+        }
+        if (startsWith(header, 0, RIFF) && startsWith(header, 8, WEBP)) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int offset, byte[] signature) {
+        if (header.length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (header[offset + i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
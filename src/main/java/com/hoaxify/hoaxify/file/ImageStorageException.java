@@ -0,0 +1,12 @@
+package com.hoaxify.hoaxify.file;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+public class ImageStorageException extends RuntimeException {
+
+    public ImageStorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.hoaxify.hoaxify.file;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class ImageTooLargeException extends RuntimeException {
+
+    public ImageTooLargeException(long maxBytes) {
+        super("Image exceeds " + maxBytes + " bytes");
+    }
+}
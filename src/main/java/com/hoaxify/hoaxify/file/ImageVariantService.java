@@ -0,0 +1,160 @@
+package com.hoaxify.hoaxify.file;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the {@link ImageVariants} of stored profile images on a small worker pool, off the request thread.
+ * With {@code hoaxify.image-variant-threads} set to 0 they are generated on the calling thread instead. When
+ * {@code hoaxify.image-variant-queue-capacity} images are already waiting, generation is refused and the user keeps
+ * the original as every variant.
+ * <p>
+ * An upload is only limited in bytes, and a few kilobytes can declare an image that decodes to gigabytes, so the
+ * dimensions are read from the header first and images over {@code hoaxify.max-image-pixels} are never decoded.
+ */
+@Service
+public class ImageVariantService {
+
+    private final AppConfiguration appConfiguration;
+
+    private final FileService fileService;
+
+    private final ThreadPoolExecutor workers;
+
+    private final Executor executor;
+
+    public ImageVariantService(AppConfiguration appConfiguration, FileService fileService) {
+        this.appConfiguration = appConfiguration;
+        this.fileService = fileService;
+        int threads = appConfiguration.getImageVariantThreads();
+        if (threads > 0) {
+            AtomicInteger count = new AtomicInteger();
+            this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(appConfiguration.getImageVariantQueueCapacity()), runnable -> {
+                        Thread thread = new Thread(runnable, "image-variant-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+        } else {
+            this.workers = null;
+        }
+        this.executor = workers != null ? workers : Runnable::run;
+    }
+
+    /**
+     * @return completes with {@code true} once every variant is written, {@code false} if the original is gone
+     */
+    public CompletableFuture<Boolean> generate(String image) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return writeVariants(image);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private boolean writeVariants(String image) throws IOException {
+        Path folder = Paths.get(appConfiguration.getFullProfileImagesPath());
+        BufferedImage source;
+        try (InputStream original = fileService.openProfileImage(image)) {
+            if (original == null) {
+                return false;
+            }
+            source = read(image, original);
+        }
+        if (source == null) {
+            return false;
+        }
+        boolean alpha = source.getColorModel().hasAlpha();
+        String format = alpha ? "png" : "jpg";
+        for (int size : ImageVariants.SIZES) {
+            BufferedImage variant = resize(source, size, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Path temp = Files.createTempFile(folder, image, ".tmp");
+            try {
+                ImageIO.write(variant, format, temp.toFile());
+                fileService.commit(new StagedImage(ImageVariants.name(image, size), temp));
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the decoded image, or {@code null} if no reader recognizes the format
+     */
+    private BufferedImage read(String image, InputStream original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > appConfiguration.getMaxImagePixels()) {
+                    throw new IOException(image + " has " + pixels + " pixels, more than the "
+                            + appConfiguration.getMaxImagePixels() + " allowed");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Crops the centered square and scales it to {@code size} x {@code size}.
+     */
+    private static BufferedImage resize(BufferedImage source, int size, int type) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - side) / 2;
+        int y = (source.getHeight() - side) / 2;
+        BufferedImage target = new BufferedImage(size, size, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, size, size, x, y, x + side, y + side, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+}
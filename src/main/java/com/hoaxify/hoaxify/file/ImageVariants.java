@@ -0,0 +1,33 @@
+package com.hoaxify.hoaxify.file;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The fixed set of square variants generated for every profile image, stored next to it as {@code <image>_<size>}.
+ */
+public final class ImageVariants {
+
+    public static final int[] SIZES = {32, 64, 256};
+
+    private ImageVariants() {
+    }
+
+    public static String name(String image, int size) {
+        return image + "_" + size;
+    }
+
+    /**
+     * @return the variant names by size, or the original image for every size while the variants are not ready
+     */
+    public static Map<String, String> of(String image, boolean ready) {
+        if (image == null) {
+            return null;
+        }
+        Map<String, String> variants = new LinkedHashMap<>();
+        for (int size : SIZES) {
+            variants.put(String.valueOf(size), ready ? name(image, size) : image);
+        }
+        return variants;
+    }
+}
@@ -0,0 +1,423 @@
+package com.hoaxify.hoaxify.file;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores small profile images as records appended to large segment files instead of one file per image.
+ * <p>
+ * A record is {@code [int nameLength][int dataLength][name][data]}; a {@code dataLength} of -1 is a tombstone.
+ * The in-memory index (name → segment, offset, length) is rebuilt on start by scanning the segments in order, later
+ * records winning. Reads are slices of read-only memory-mapped segments and take no lock. Writes, deletes and
+ * compaction are serialized on the store, and each is forced to disk before the index or a compacted source changes. Sealed segments whose dead share exceeds
+ * {@code hoaxify.packed-compaction-ratio} are rewritten in the background: live records are copied to the active
+ * segment and the old file is removed.
+ */
+@Component
+public class PackedImageStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PackedImageStore.class);
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final int TOMBSTONE = -1;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final AppConfiguration appConfiguration;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private Segment active;
+
+    private ScheduledExecutorService compactor;
+
+    private volatile boolean open;
+
+    public PackedImageStore(AppConfiguration appConfiguration) {
+        this.appConfiguration = appConfiguration;
+    }
+
+    /**
+     * @return a read-only view of the stored bytes, or {@code null}
+     */
+    public ByteBuffer get(String name) {
+        ensureOpen();
+        Location location = index.get(name);
+        if (location == null) {
+            return null;
+        }
+        Segment segment = segments.get(location.segment);
+        if (segment == null) {
+            // compacted away between the two lookups, the index already points at the copy
+            return get(name);
+        }
+        return segment.slice(location.offset, location.length);
+    }
+
+    public synchronized void put(String name, Path content) throws IOException {
+        ensureOpen();
+        long length = Files.size(content);
+        try (FileChannel in = FileChannel.open(content)) {
+            Location location = append(name, in, length);
+            active.force();
+            replace(name, location);
+        }
+    }
+
+    public synchronized void delete(String name) {
+        ensureOpen();
+        Location removed = index.remove(name);
+        if (removed == null) {
+            return;
+        }
+        try {
+            segments.get(removed.segment).dead += RECORD_HEADER_SIZE + nameBytes(name).length + removed.length;
+            Location tombstone = append(name, null, TOMBSTONE);
+            active.force();
+            active.dead += RECORD_HEADER_SIZE + nameBytes(name).length;
+            rollIfFull(tombstone);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rewrites every sealed segment that is mostly dead.
+     */
+    public synchronized void compact() throws IOException {
+        ensureOpen();
+        double ratio = appConfiguration.getPackedCompactionRatio();
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment != active && segment.size > 0 && segment.dead >= segment.size * ratio) {
+                compact(segment);
+            }
+        }
+    }
+
+    private void compact(Segment segment) throws IOException {
+        boolean oldest = segments.firstKey() == segment.id;
+        ByteBuffer records = segment.slice(0, segment.size);
+        while (records.remaining() >= RECORD_HEADER_SIZE) {
+            int nameLength = records.getInt();
+            int dataLength = records.getInt();
+            byte[] nameBytes = new byte[nameLength];
+            records.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            int dataStart = records.position();
+            if (dataLength == TOMBSTONE) {
+                // an older segment may still hold the record this tombstone hides
+                if (!oldest && !index.containsKey(name)) {
+                    append(name, null, TOMBSTONE);
+                    active.dead += RECORD_HEADER_SIZE + nameLength;
+                }
+                continue;
+            }
+            records.position(dataStart + dataLength);
+            Location current = index.get(name);
+            if (current != null && current.segment == segment.id && current.offset == dataStart) {
+                ByteBuffer data = segment.slice(dataStart, dataLength);
+                replace(name, appendBytes(name, data));
+            }
+        }
+        // the copies may span several segments if the active one rolled, all must be durable before the source goes
+        for (Segment written : segments.values()) {
+            written.force();
+        }
+        segments.remove(segment.id);
+        segment.close();
+        Files.deleteIfExists(segment.path);
+        log.info("Compacted segment {} ({} of {} bytes were dead)", segment.id, segment.dead, segment.size);
+    }
+
+    private void replace(String name, Location location) throws IOException {
+        Location previous = index.put(name, location);
+        if (previous != null) {
+            segments.get(previous.segment).dead += RECORD_HEADER_SIZE + nameBytes(name).length + previous.length;
+        }
+        rollIfFull(location);
+    }
+
+    private Location appendBytes(String name, ByteBuffer data) throws IOException {
+        byte[] nameBytes = nameBytes(name);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE + nameBytes.length);
+        header.putInt(nameBytes.length).putInt(data.remaining()).put(nameBytes).flip();
+        long offset = active.size + header.remaining();
+        int length = data.remaining();
+        active.write(header);
+        active.write(data);
+        return new Location(active.id, offset, length);
+    }
+
+    private Location append(String name, FileChannel content, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(name + " is too large for a packed segment");
+        }
+        byte[] nameBytes = nameBytes(name);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE + nameBytes.length);
+        header.putInt(nameBytes.length).putInt((int) length).put(nameBytes).flip();
+        long offset = active.size + header.remaining();
+        active.write(header);
+        if (content != null) {
+            long position = 0;
+            while (position < length) {
+                long transferred = active.channel.transferFrom(content, active.size + position, length - position);
+                if (transferred <= 0) {
+                    active.channel.truncate(active.size - header.capacity());
+                    active.size -= header.capacity();
+                    throw new IOException(name + " ended after " + position + " of " + length + " bytes");
+                }
+                position += transferred;
+            }
+            active.size += length;
+            active.dirty = true;
+        }
+        return new Location(active.id, offset, content != null ? length : 0);
+    }
+
+    private void rollIfFull(Location written) throws IOException {
+        if (active.id == written.segment && active.size >= appConfiguration.getPackedSegmentSize().toBytes()) {
+            active = openSegment(active.id + 1);
+        }
+    }
+
+    private void ensureOpen() {
+        if (!open) {
+            synchronized (this) {
+                if (!open) {
+                    try {
+                        load();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    open = true;
+                }
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        Path folder = folder();
+        Files.createDirectories(folder);
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                ids.add(Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        ids.sort(null);
+        for (long id : ids) {
+            scan(openSegment(id));
+        }
+        active = ids.isEmpty() ? openSegment(0) : segments.lastEntry().getValue();
+        long interval = appConfiguration.getPackedCompactionInterval().toMillis();
+        if (interval > 0) {
+            compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "packed-image-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactor.scheduleWithFixedDelay(() -> {
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Compaction of packed images failed", e);
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Replays a segment into the index and truncates a record torn by a crash.
+     */
+    private void scan(Segment segment) throws IOException {
+        ByteBuffer records = segment.slice(0, segment.size);
+        int end = 0;
+        while (records.remaining() >= RECORD_HEADER_SIZE) {
+            int nameLength = records.getInt();
+            int dataLength = records.getInt();
+            int stored = dataLength == TOMBSTONE ? 0 : dataLength;
+            if (nameLength < 0 || stored < 0 || records.remaining() < nameLength + (long) stored) {
+                break;
+            }
+            byte[] nameBytes = new byte[nameLength];
+            records.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            int dataStart = records.position();
+            records.position(dataStart + stored);
+            end = records.position();
+            Location previous = dataLength == TOMBSTONE
+                    ? index.remove(name)
+                    : index.put(name, new Location(segment.id, dataStart, dataLength));
+            if (previous != null) {
+                segments.get(previous.segment).dead += RECORD_HEADER_SIZE + nameLength + previous.length;
+            }
+            if (dataLength == TOMBSTONE) {
+                segment.dead += RECORD_HEADER_SIZE + nameLength;
+            }
+        }
+        if (end < segment.size) {
+            log.warn("Truncating torn record at {} of {}", end, segment.path);
+            segment.truncate(end);
+        }
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Path path = folder().resolve(String.format("%s%010d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = new Segment(id, path);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Path folder() {
+        return Paths.get(appConfiguration.getUploadPath(), appConfiguration.getPackedImagesFolder());
+    }
+
+    private static byte[] nameBytes(String name) {
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+        index.clear();
+        open = false;
+    }
+
+    private static final class Location {
+
+        final long segment;
+
+        final long offset;
+
+        final long length;
+
+        Location(long segment, long offset, long length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class Segment {
+
+        final long id;
+
+        final Path path;
+
+        final FileChannel channel;
+
+        volatile long size;
+
+        long dead;
+
+        // guarded by the store, set by appends that have not been forced yet
+        boolean dirty;
+
+        private volatile MappedByteBuffer mapped;
+
+        // records appended after mapped was made, mapped one by one until the segment is mapped again as a whole
+        private final Map<Long, MappedByteBuffer> tail = new ConcurrentHashMap<>();
+
+        Segment(long id, Path path) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+
+        void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                size += channel.write(buffer, size);
+            }
+            dirty = true;
+        }
+
+        synchronized void truncate(long end) throws IOException {
+            channel.truncate(end);
+            size = end;
+            // a mapping past the new end would fault once records are appended there
+            mapped = null;
+            tail.clear();
+        }
+
+        void force() throws IOException {
+            if (dirty) {
+                channel.force(false);
+                dirty = false;
+            }
+        }
+
+        /**
+         * Records appended after the current mapping are mapped on their own. The whole segment is mapped again only
+         * once the unmapped tail reaches a quarter of the mapping, so a growing segment is remapped a logarithmic
+         * number of times rather than once per new record.
+         */
+        ByteBuffer slice(long offset, long length) {
+            MappedByteBuffer view = mapped;
+            if (view == null || offset + length > view.capacity()) {
+                synchronized (this) {
+                    view = mapped;
+                    if (view == null || offset + length > view.capacity()) {
+                        long end = size;
+                        if (view != null && end - view.capacity() < view.capacity() / 4) {
+                            return tail.computeIfAbsent(offset, start -> map(start, length)).asReadOnlyBuffer();
+                        }
+                        view = map(0, end);
+                        mapped = view;
+                        tail.clear();
+                    }
+                }
+            }
+            ByteBuffer slice = view.asReadOnlyBuffer();
+            slice.position((int) offset).limit((int) (offset + length));
+            return slice.slice();
+        }
+
+        private MappedByteBuffer map(long offset, long length) {
+            try {
+                return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.hoaxify.hoaxify.file;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * A fully written and type-checked upload waiting in a temp file for {@link FileService#commit}.
+ */
+@Getter
+public class StagedImage {
+
+    private final String name;
+
+    private final Path temp;
+
+    StagedImage(String name, Path temp) {
+        this.name = name;
+        this.temp = temp;
+    }
+}
@@ -0,0 +1,12 @@
+package com.hoaxify.hoaxify.file;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnsupportedImageTypeException extends RuntimeException {
+
+    public UnsupportedImageTypeException(String type) {
+        super("Unsupported image type: " + type);
+    }
+}
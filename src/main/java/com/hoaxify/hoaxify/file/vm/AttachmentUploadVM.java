@@ -0,0 +1,14 @@
+package com.hoaxify.hoaxify.file.vm;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class AttachmentUploadVM {
+
+    @NotNull
+    @Min(1)
+    private Long size;
+}
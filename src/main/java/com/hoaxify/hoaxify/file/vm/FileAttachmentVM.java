@@ -0,0 +1,31 @@
+package com.hoaxify.hoaxify.file.vm;
+
+import com.hoaxify.hoaxify.file.FileAttachment;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class FileAttachmentVM {
+
+    private long id;
+
+    private String name;
+
+    private String fileType;
+
+    private long size;
+
+    private long received;
+
+    private boolean completed;
+
+    public FileAttachmentVM(FileAttachment attachment) {
+        this.setId(attachment.getId());
+        this.setName(attachment.getName());
+        this.setFileType(attachment.getFileType());
+        this.setSize(attachment.getSize());
+        this.setReceived(attachment.getReceived());
+        this.setCompleted(attachment.isCompleted());
+    }
+}
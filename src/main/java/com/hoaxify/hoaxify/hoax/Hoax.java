@@ -1,25 +1,44 @@
 package com.hoaxify.hoaxify.hoax;
 
+import com.hoaxify.hoaxify.file.FileAttachment;
 import com.hoaxify.hoaxify.user.User;
 import lombok.Data;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.OneToOne;
+import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.util.Date;
 
+/**
+ * The feeds page by id, optionally for one author, so {@code (user_id, id)} serves both the filter and the order.
+ * H2 does not walk an index backwards, the descending id index lets the newest-first feed stop after one page.
+ */
 @Data
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_hoax_user_id", columnList = "user_id, id"),
+        @Index(name = "idx_hoax_id_desc", columnList = "id desc"),
+        @Index(name = "idx_hoax_timestamp", columnList = "timestamp")
+})
 public class Hoax {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "hoax_id")
+    @GenericGenerator(name = "hoax_id", strategy = "com.hoaxify.hoaxify.shared.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "hoax_seq"))
     private long id;
 
     @NotNull
@@ -32,4 +51,7 @@ public class Hoax {
 
     @ManyToOne
     private User user;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    private FileAttachment attachment;
 }
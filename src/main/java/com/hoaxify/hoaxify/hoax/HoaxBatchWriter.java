@@ -0,0 +1,166 @@
+package com.hoaxify.hoaxify.hoax;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.error.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Group commit for new hoaxes: callers enqueue and a single writer thread inserts whatever arrived within
+ * {@code hoaxify.hoax-group-commit-max-latency} of the first queued hoax, up to
+ * {@code hoaxify.hoax-group-commit-batch-size}, in one transaction and JDBC batch. Each caller's future completes
+ * with its saved hoax once that transaction committed. When the batch transaction fails, its hoaxes are retried one
+ * per transaction so only the offending one fails. A full queue, or a writer that is shutting down, refuses the hoax
+ * with {@link ServiceUnavailableException}.
+ */
+@Component
+public class HoaxBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(HoaxBatchWriter.class);
+
+    private final HoaxRepository hoaxRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AppConfiguration appConfiguration;
+
+    // queue, writer and stopped are only changed under this
+    private BlockingQueue<PendingHoax> queue;
+
+    private Thread writer;
+
+    private boolean stopped;
+
+    private volatile boolean running;
+
+    public HoaxBatchWriter(HoaxRepository hoaxRepository, TransactionTemplate transactionTemplate,
+                           AppConfiguration appConfiguration) {
+        this.hoaxRepository = hoaxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.appConfiguration = appConfiguration;
+    }
+
+    /**
+     * Offers under the same lock {@link #shutdown} takes, so every hoax accepted here is queued before the writer's
+     * final drain and none is left waiting forever.
+     */
+    public synchronized CompletableFuture<Hoax> enqueue(Hoax hoax) {
+        if (stopped) {
+            return CompletableFuture.failedFuture(new ServiceUnavailableException("Shutting down"));
+        }
+        PendingHoax pending = new PendingHoax(hoax);
+        if (!started().offer(pending)) {
+            return CompletableFuture.failedFuture(new ServiceUnavailableException("Too many hoaxes are waiting to be saved"));
+        }
+        return pending.saved;
+    }
+
+    private BlockingQueue<PendingHoax> started() {
+        if (!running) {
+            queue = new ArrayBlockingQueue<>(appConfiguration.getHoaxGroupCommitQueueCapacity());
+            running = true;
+            writer = new Thread(this::writeBatches, "hoax-batch-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        return queue;
+    }
+
+    private void writeBatches() {
+        int batchSize = appConfiguration.getHoaxGroupCommitBatchSize();
+        long maxLatency = appConfiguration.getHoaxGroupCommitMaxLatency().toNanos();
+        List<PendingHoax> batch = new ArrayList<>(batchSize);
+        try {
+            while (running) {
+                PendingHoax first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLatency;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long wait = deadline - System.nanoTime();
+                    PendingHoax next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            batch.addAll(queue);
+        }
+        batch.forEach(pending -> pending.saved.completeExceptionally(new ServiceUnavailableException("Shutting down")));
+    }
+
+    private void write(List<PendingHoax> batch) {
+        List<Hoax> saved;
+        try {
+            saved = transactionTemplate.execute(status ->
+                    hoaxRepository.saveAll(batch.stream().map(pending -> pending.hoax).collect(Collectors.toList())));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).saved.completeExceptionally(e);
+                return;
+            }
+            log.warn("Saving a batch of {} hoaxes failed, saving them one by one", batch.size(), e);
+            batch.forEach(this::writeOne);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).saved.complete(saved.get(i));
+        }
+    }
+
+    private void writeOne(PendingHoax pending) {
+        // the rolled back batch already assigned an id, which would make the hoax look detached
+        pending.hoax.setId(0);
+        try {
+            pending.saved.complete(transactionTemplate.execute(status -> hoaxRepository.save(pending.hoax)));
+        } catch (RuntimeException e) {
+            pending.saved.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Stops for good: hoaxes enqueued afterwards are refused instead of starting a new writer.
+     */
+    @PreDestroy
+    synchronized void shutdown() {
+        stopped = true;
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    private static final class PendingHoax {
+
+        final Hoax hoax;
+
+        final CompletableFuture<Hoax> saved = new CompletableFuture<>();
+
+        PendingHoax(Hoax hoax) {
+            this.hoax = hoax;
+        }
+    }
+}
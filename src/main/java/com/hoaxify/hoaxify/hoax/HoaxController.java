@@ -1,12 +1,17 @@
 package com.hoaxify.hoaxify.hoax;
 
+import com.hoaxify.hoaxify.hoax.vm.HoaxImportVM;
 import com.hoaxify.hoaxify.hoax.vm.HoaxVM;
 import com.hoaxify.hoaxify.shared.CurrentUser;
+import com.hoaxify.hoaxify.shared.CursorPage;
+import com.hoaxify.hoaxify.shared.TotalsMode;
 import com.hoaxify.hoaxify.user.User;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -14,11 +19,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/1.0")
@@ -27,19 +37,56 @@ public class HoaxController {
     @Autowired
     HoaxService hoaxService;
 
+    @Autowired
+    HoaxTransferService hoaxTransferService;
+
     @PostMapping("/hoaxes")
-    HoaxVM createHoax(@Valid @RequestBody Hoax hoax, @CurrentUser User user) {
-        return new HoaxVM(hoaxService.save(user, hoax));
+    CompletableFuture<HoaxVM> createHoax(@Valid @RequestBody Hoax hoax, @CurrentUser User user) {
+        return hoaxService.submit(user, hoax).thenApply(HoaxVM::new);
+    }
+
+    @GetMapping(path = "/hoaxes/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> exportHoaxes() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(hoaxTransferService::exportAll);
+    }
+
+    @PostMapping(path = "/hoaxes/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    HoaxImportVM importHoaxes(HttpServletRequest request, @CurrentUser User user) throws IOException {
+        if (!hoaxTransferService.isImportEnabled()) {
+            throw new AccessDeniedException("Hoax import is disabled");
+        }
+        try (InputStream in = request.getInputStream()) {
+            return new HoaxImportVM(hoaxTransferService.importAll(in, user));
+        }
     }
 
     @GetMapping("/hoaxes")
-    Page<HoaxVM> getAllHoaxes(Pageable pageable) {
-        return hoaxService.getAllHoaxes(pageable).map(HoaxVM::new);
+    Slice<HoaxVM> getAllHoaxes(Pageable pageable,
+                               @RequestParam(name = "totals", defaultValue = "exact") TotalsMode totals) {
+        return hoaxService.getAllHoaxes(pageable, totals);
     }
 
     @GetMapping("/users/{username}/hoaxes")
-    Page<HoaxVM> getHoaxesOfUser(@PathVariable String username, Pageable pageable) {
-        return hoaxService.getHoaxesOfUser(username, pageable).map(HoaxVM::new);
+    Slice<HoaxVM> getHoaxesOfUser(@PathVariable String username, Pageable pageable,
+                                  @RequestParam(name = "totals", defaultValue = "exact") TotalsMode totals) {
+        return hoaxService.getHoaxesOfUser(username, pageable, totals);
+    }
+
+    @GetMapping(value = "/hoaxes", params = "cursor")
+    CursorPage<HoaxVM> getAllHoaxesByCursor(@RequestParam String cursor, Pageable pageable) {
+        return toCursorPage(hoaxService.getHoaxesByCursor(cursor, null, pageable));
+    }
+
+    @GetMapping(value = "/users/{username}/hoaxes", params = "cursor")
+    CursorPage<HoaxVM> getHoaxesOfUserByCursor(@PathVariable String username, @RequestParam String cursor, Pageable pageable) {
+        return toCursorPage(hoaxService.getHoaxesByCursor(cursor, username, pageable));
+    }
+
+    @GetMapping(value = {"/hoaxes/stream", "/users/{username}/hoaxes/stream"}, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter streamHoaxes(@PathVariable(required = false) String username) {
+        return hoaxService.subscribe(username);
     }
 
     @GetMapping({"/hoaxes/{id:[0-9]+}", "/users/{username}/hoaxes/{id:[0-9]+}"})
@@ -47,16 +94,26 @@ public class HoaxController {
                                         @PathVariable long id,
                                         Pageable pageable,
                                         @RequestParam(name = "direction", defaultValue = "after") String direction,
-                                        @RequestParam(name = "count", defaultValue = "false", required = false) boolean count) {
+                                        @RequestParam(name = "count", defaultValue = "false", required = false) boolean count,
+                                        @RequestParam(name = "totals", defaultValue = "exact") TotalsMode totals,
+                                        @RequestParam(name = "bounded", defaultValue = "false") boolean bounded,
+                                        @RequestParam(name = "cursor", required = false) String cursor) {
         if (!direction.equalsIgnoreCase("after")) {
-            return ResponseEntity.ok(hoaxService.getOldHoaxes(id, username, pageable).map(HoaxVM::new));
+            return ResponseEntity.ok(hoaxService.getOldHoaxes(id, username, pageable, totals));
         }
         if (count) {
             long newHoaxCount = hoaxService.getNewHoaxesCount(id, username);
             return ResponseEntity.ok(Map.of("count", newHoaxCount));
         }
-        List<HoaxVM> newHoaxes = hoaxService.getNewHoaxes(id, username, pageable).stream()
-                .map(HoaxVM::new).collect(Collectors.toList());
-        return ResponseEntity.ok(newHoaxes);
+        if (bounded) {
+            return ResponseEntity.ok(hoaxService.getNewHoaxesBounded(id, cursor, username, pageable));
+        }
+        return ResponseEntity.ok(hoaxService.getNewHoaxes(id, username, pageable));
+    }
+
+    private CursorPage<HoaxVM> toCursorPage(Slice<HoaxVM> slice) {
+        List<HoaxVM> content = slice.getContent();
+        String nextCursor = slice.hasNext() ? HoaxCursor.encode(content.get(content.size() - 1).getId()) : null;
+        return new CursorPage<>(content, slice.getSize(), nextCursor);
     }
 }
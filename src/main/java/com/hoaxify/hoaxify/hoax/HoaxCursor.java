@@ -0,0 +1,37 @@
+package com.hoaxify.hoaxify.hoax;
+
+import com.hoaxify.hoaxify.error.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for the hoax feeds. Feeds are sorted by id, so the last seen id is the sort key.
+ */
+public final class HoaxCursor {
+
+    private static final String PREFIX = "id:";
+
+    private HoaxCursor() {
+    }
+
+    public static String encode(long id) {
+        byte[] raw = (PREFIX + id).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!raw.startsWith(PREFIX)) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return Long.parseLong(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
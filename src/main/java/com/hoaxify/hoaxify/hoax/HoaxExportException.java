@@ -0,0 +1,14 @@
+package com.hoaxify.hoaxify.hoax;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The client went away or the connection broke while an export was streaming.
+ */
+public class HoaxExportException extends UncheckedIOException {
+
+    public HoaxExportException(IOException cause) {
+        super(cause);
+    }
+}
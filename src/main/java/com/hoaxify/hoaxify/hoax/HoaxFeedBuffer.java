@@ -0,0 +1,132 @@
+package com.hoaxify.hoaxify.hoax;
+
+import com.hoaxify.hoaxify.hoax.vm.HoaxVM;
+import com.hoaxify.hoaxify.user.vm.UserVM;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Lock-free ring of the most recently saved hoaxes. Every hoax with an id above {@link #floor} is in the ring,
+ * so reads that stay above it can be answered without the database.
+ */
+class HoaxFeedBuffer {
+
+    private final int capacity;
+
+    private final AtomicReferenceArray<HoaxVM> slots;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong floor = new AtomicLong();
+
+    private final AtomicLong total = new AtomicLong();
+
+    private volatile boolean warm;
+
+    HoaxFeedBuffer(int capacity) {
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(Math.max(capacity, 1));
+    }
+
+    void add(HoaxVM hoax) {
+        if (capacity <= 0) {
+            return;
+        }
+        int slot = (int) (sequence.getAndIncrement() % capacity);
+        HoaxVM evicted = slots.getAndSet(slot, hoax);
+        if (evicted != null) {
+            floor.accumulateAndGet(evicted.getId(), Math::max);
+        }
+        total.incrementAndGet();
+    }
+
+    /**
+     * Replaces the buffer content; {@code newestFirst} must be the newest hoaxes in the database, at most capacity.
+     * Not safe against concurrent {@link #add}, so it is only called at startup or on a quiet system.
+     */
+    synchronized void warm(List<HoaxVM> newestFirst, long count) {
+        if (capacity <= 0) {
+            return;
+        }
+        warm = false;
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+        sequence.set(0);
+        total.set(count);
+        floor.set(newestFirst.size() < count ? newestFirst.get(newestFirst.size() - 1).getId() - 1 : 0);
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            slots.set((int) (sequence.getAndIncrement() % capacity), newestFirst.get(i));
+        }
+        warm = true;
+    }
+
+    /**
+     * Stops answering reads until the next {@link #warm}; used when hoaxes were written around {@link #add} on a live
+     * system, where re-warming in place could overwrite a concurrent add.
+     */
+    void invalidate() {
+        warm = false;
+    }
+
+    long total() {
+        return total.get();
+    }
+
+    /**
+     * @return the newest {@code size + 1} hoaxes (the extra one tells whether there is a next page),
+     * or empty if the buffer cannot answer
+     */
+    Optional<List<HoaxVM>> latest(int size) {
+        if (!warm) {
+            return Optional.empty();
+        }
+        List<HoaxVM> snapshot = snapshot(hoax -> true);
+        if (snapshot.size() > size) {
+            return Optional.of(snapshot.subList(0, size + 1));
+        }
+        return floor.get() == 0 ? Optional.of(snapshot) : Optional.empty();
+    }
+
+    /**
+     * @return hoaxes newer than {@code id}, newest first, optionally only those of {@code userId}
+     */
+    Optional<List<HoaxVM>> newerThan(long id, Long userId) {
+        if (!warm) {
+            return Optional.empty();
+        }
+        List<HoaxVM> snapshot = snapshot(hoax -> hoax.getId() > id
+                && (userId == null || hoax.getUser().getId() == userId));
+        // read the floor after the snapshot, anything evicted while copying has raised it already
+        return id >= floor.get() ? Optional.of(snapshot) : Optional.empty();
+    }
+
+    void updateUser(UserVM user) {
+        for (int i = 0; i < slots.length(); i++) {
+            HoaxVM hoax = slots.get(i);
+            if (hoax != null && hoax.getUser().getId() == user.getId()) {
+                hoax.setUser(user);
+            }
+        }
+    }
+
+    private List<HoaxVM> snapshot(Predicate<HoaxVM> filter) {
+        List<HoaxVM> snapshot = new ArrayList<>(capacity);
+        for (int i = 0; i < slots.length(); i++) {
+            HoaxVM hoax = slots.get(i);
+            if (hoax != null && filter.test(hoax)) {
+                snapshot.add(hoax);
+            }
+        }
+        return snapshot.stream()
+                .sorted(Comparator.comparingLong(HoaxVM::getId).reversed())
+                .collect(Collectors.toList());
+    }
+}
@@ -1,13 +1,71 @@
 package com.hoaxify.hoaxify.hoax;
 
-import com.hoaxify.hoaxify.user.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Feed queries fetch the author and attachment in the same statement, {@link com.hoaxify.hoaxify.hoax.vm.HoaxVM} needs them for every row.
+ * Author filters are written against {@code h.user.id} so they compare {@code hoax.user_id} and can use the
+ * {@code (user_id, id)} index; derived names would filter on the joined user row instead.
+ */
 public interface HoaxRepository extends JpaRepository<Hoax, Long>, JpaSpecificationExecutor<Hoax> {
 
-    Page<Hoax> findByUser(User user, Pageable pageable);
-}
+    @Override
+    @EntityGraph(attributePaths = {"user", "attachment"})
+    Page<Hoax> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"user", "attachment"})
+    Page<Hoax> findAll(Specification<Hoax> spec, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"user", "attachment"})
+    List<Hoax> findAll(Specification<Hoax> spec, Sort sort);
+
+    @EntityGraph(attributePaths = {"user", "attachment"})
+    @Query(value = "select h from Hoax h where h.user.id = :userId",
+            countQuery = "select count(h) from Hoax h where h.user.id = :userId")
+    Page<Hoax> findByUserId(long userId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "attachment"})
+    Slice<Hoax> findSliceBy(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "attachment"})
+    @Query("select h from Hoax h where h.user.id = :userId")
+    Slice<Hoax> findSliceByUserId(long userId, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"user", "attachment"})
+    Slice<Hoax> findByIdLessThan(long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "attachment"})
+    @Query("select h from Hoax h where h.user.id = :userId and h.id < :id")
+    Slice<Hoax> findByUserIdAndIdLessThan(long userId, long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "attachment"})
+    Slice<Hoax> findByIdGreaterThan(long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "attachment"})
+    @Query("select h from Hoax h where h.user.id = :userId and h.id > :id")
+    Slice<Hoax> findByUserIdAndIdGreaterThan(long userId, long id, Pageable pageable);
+
+    @Query("select count(h) from Hoax h where h.user.id = :userId")
+    long countByUserId(long userId);
+
+    @Query("select h from Hoax h join fetch h.user left join fetch h.attachment order by h.id")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Hoax> streamAll();
+
+    boolean existsByAttachmentId(long attachmentId);
+}
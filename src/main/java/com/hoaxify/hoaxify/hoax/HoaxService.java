@@ -1,71 +1,277 @@
 package com.hoaxify.hoaxify.hoax;
 
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.error.BadRequestException;
+import com.hoaxify.hoaxify.file.FileAttachment;
+import com.hoaxify.hoaxify.file.FileAttachmentRepository;
+import com.hoaxify.hoaxify.hoax.vm.HoaxCatchUpVM;
+import com.hoaxify.hoaxify.hoax.vm.HoaxVM;
+import com.hoaxify.hoaxify.shared.ApproximateCounter;
+import com.hoaxify.hoaxify.shared.TotalsMode;
 import com.hoaxify.hoaxify.user.User;
+import com.hoaxify.hoaxify.user.UserChangedEvent;
 import com.hoaxify.hoaxify.user.UserService;
-import org.springframework.data.domain.Page;
+import com.hoaxify.hoaxify.user.vm.UserVM;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Service
 public class HoaxService {
 
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "id");
+
     HoaxRepository hoaxRepository;
+    FileAttachmentRepository fileAttachmentRepository;
     UserService userService;
+    ApproximateCounter approximateCounter;
+    HoaxStream hoaxStream;
+    HoaxBatchWriter batchWriter;
+    AppConfiguration appConfiguration;
+    HoaxFeedBuffer feedBuffer;
+    int feedBufferSize;
 
-    public HoaxService(HoaxRepository hoaxRepository, UserService userService) {
+    public HoaxService(HoaxRepository hoaxRepository, FileAttachmentRepository fileAttachmentRepository,
+                       UserService userService, ApproximateCounter approximateCounter,
+                       HoaxStream hoaxStream, HoaxBatchWriter batchWriter, AppConfiguration appConfiguration) {
         super();
         this.hoaxRepository = hoaxRepository;
+        this.fileAttachmentRepository = fileAttachmentRepository;
         this.userService = userService;
+        this.approximateCounter = approximateCounter;
+        this.hoaxStream = hoaxStream;
+        this.batchWriter = batchWriter;
+        this.appConfiguration = appConfiguration;
+        this.feedBufferSize = appConfiguration.getFeedBufferSize();
+        this.feedBuffer = new HoaxFeedBuffer(feedBufferSize);
     }
 
     public Hoax save(User user, Hoax hoax) {
+        prepare(user, hoax);
+        return published(hoaxRepository.save(hoax));
+    }
+
+    /**
+     * Saves like {@link #save}, but in group-commit mode the hoax is handed to the {@link HoaxBatchWriter} and the
+     * future completes when its batch committed.
+     */
+    public CompletableFuture<Hoax> submit(User user, Hoax hoax) {
+        if (!appConfiguration.isHoaxGroupCommit()) {
+            return CompletableFuture.completedFuture(save(user, hoax));
+        }
+        prepare(user, hoax);
+        return batchWriter.enqueue(hoax).thenApply(this::published);
+    }
+
+    private void prepare(User user, Hoax hoax) {
         hoax.setTimestamp(new Date());
         hoax.setUser(user);
-        return hoaxRepository.save(hoax);
+        if (hoax.getAttachment() != null) {
+            hoax.setAttachment(findAttachableUpload(user, hoax.getAttachment().getId()));
+        }
     }
 
-    public Page<Hoax> getAllHoaxes(Pageable pageable) {
-        return hoaxRepository.findAll(pageable);
+    private Hoax published(Hoax saved) {
+        HoaxVM hoaxVM = new HoaxVM(saved);
+        feedBuffer.add(hoaxVM);
+        hoaxStream.publish(hoaxVM);
+        return saved;
     }
 
-    public Page<Hoax> getHoaxesOfUser(String username, Pageable pageable) {
-        User inDB = userService.getByUsername(username);
-        return hoaxRepository.findByUser(inDB, pageable);
+    /**
+     * An attachment can be posted once, by its uploader, after its upload is complete.
+     */
+    private FileAttachment findAttachableUpload(User user, long attachmentId) {
+        FileAttachment attachment = fileAttachmentRepository.findById(attachmentId).orElse(null);
+        if (attachment == null || !attachment.isCompleted() || attachment.getUser().getId() != user.getId()
+                || hoaxRepository.existsByAttachmentId(attachmentId)) {
+            throw new BadRequestException("Invalid attachment " + attachmentId);
+        }
+        return attachment;
+    }
+
+    public SseEmitter subscribe(String username) {
+        if (username == null) {
+            return hoaxStream.subscribe(null);
+        }
+        return hoaxStream.subscribe(userService.getProjectionByUsername(username).getId());
     }
 
-    public Page<Hoax> getOldHoaxes(long id, String username, Pageable pageable) {
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshFeedBuffer() {
+        if (feedBufferSize <= 0) {
+            return;
+        }
+        List<HoaxVM> newest = hoaxRepository.findSliceBy(PageRequest.of(0, feedBufferSize, NEWEST_FIRST))
+                .map(HoaxVM::new).getContent();
+        feedBuffer.warm(newest, hoaxRepository.count());
+    }
+
+    /**
+     * Sends feed reads to the database after hoaxes were inserted without going through {@link #save}.
+     */
+    public void invalidateFeedBuffer() {
+        feedBuffer.invalidate();
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        feedBuffer.updateUser(new UserVM(event.getUser()));
+    }
+
+    public Slice<HoaxVM> getAllHoaxes(Pageable pageable, TotalsMode totals) {
+        if (pageable.getPageNumber() == 0 && NEWEST_FIRST.equals(pageable.getSort())) {
+            Optional<List<HoaxVM>> latest = feedBuffer.latest(pageable.getPageSize());
+            if (latest.isPresent()) {
+                return toSlice(latest.get(), pageable, totals);
+            }
+        }
+        switch (totals) {
+            case NONE:
+                return hoaxRepository.findSliceBy(pageable).map(HoaxVM::new);
+            case APPROXIMATE:
+                return approximateCounter.toPage(hoaxRepository.findSliceBy(pageable), "hoaxes", hoaxRepository::count)
+                        .map(HoaxVM::new);
+            default:
+                return hoaxRepository.findAll(pageable).map(HoaxVM::new);
+        }
+    }
+
+    public Slice<HoaxVM> getHoaxesOfUser(String username, Pageable pageable, TotalsMode totals) {
+        long userId = userService.getProjectionByUsername(username).getId();
+        switch (totals) {
+            case NONE:
+                return hoaxRepository.findSliceByUserId(userId, pageable).map(HoaxVM::new);
+            case APPROXIMATE:
+                return approximateCounter.toPage(hoaxRepository.findSliceByUserId(userId, pageable),
+                        "hoaxes:" + userId, () -> hoaxRepository.countByUserId(userId)).map(HoaxVM::new);
+            default:
+                return hoaxRepository.findByUserId(userId, pageable).map(HoaxVM::new);
+        }
+    }
+
+    public Slice<HoaxVM> getHoaxesByCursor(String cursor, String username, Pageable pageable) {
+        long beforeId = HoaxCursor.decode(cursor);
+        Pageable keyset = PageRequest.of(0, pageable.getPageSize(), NEWEST_FIRST);
+        if (username == null) {
+            return hoaxRepository.findByIdLessThan(beforeId, keyset).map(HoaxVM::new);
+        }
+        long userId = userService.getProjectionByUsername(username).getId();
+        return hoaxRepository.findByUserIdAndIdLessThan(userId, beforeId, keyset).map(HoaxVM::new);
+    }
+
+    public Slice<HoaxVM> getOldHoaxes(long id, String username, Pageable pageable, TotalsMode totals) {
+        Long userId = findUserId(username);
+        if (totals == TotalsMode.NONE) {
+            Slice<Hoax> hoaxes = userId == null
+                    ? hoaxRepository.findByIdLessThan(id, pageable)
+                    : hoaxRepository.findByUserIdAndIdLessThan(userId, id, pageable);
+            return hoaxes.map(HoaxVM::new);
+        }
         Specification<Hoax> spec = Specification.where(idLessThan(id));
-        if (username != null) {
-            User inDB = userService.getByUsername(username);
-            spec = spec.and(userIs(inDB));
+        if (userId != null) {
+            spec = spec.and(userIdIs(userId));
         }
-        return hoaxRepository.findAll(spec, pageable);
+        return hoaxRepository.findAll(spec, pageable).map(HoaxVM::new);
     }
 
-    public List<Hoax> getNewHoaxes(long id, String username, Pageable pageable) {
+    public List<HoaxVM> getNewHoaxes(long id, String username, Pageable pageable) {
+        Long userId = findUserId(username);
+        Sort sort = pageable.getSort();
+        if (isIdOrder(sort)) {
+            Optional<List<HoaxVM>> buffered = feedBuffer.newerThan(id, userId);
+            if (buffered.isPresent()) {
+                List<HoaxVM> newest = buffered.get();
+                if (sort.isSorted() && sort.getOrderFor("id").isDescending()) {
+                    return newest;
+                }
+                List<HoaxVM> oldestFirst = new ArrayList<>(newest);
+                Collections.reverse(oldestFirst);
+                return oldestFirst;
+            }
+        }
         Specification<Hoax> spec = Specification.where(idGreaterThan(id));
-        if (username != null) {
-            User inDB = userService.getByUsername(username);
-            spec = spec.and(userIs(inDB));
+        if (userId != null) {
+            spec = spec.and(userIdIs(userId));
+        }
+        return hoaxRepository.findAll(spec, sort).stream().map(HoaxVM::new).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns at most one page of the hoaxes following {@code id}, oldest page first, so a client that was away
+     * can catch up in bounded steps by following {@code nextCursor}.
+     */
+    public HoaxCatchUpVM getNewHoaxesBounded(long id, String cursor, String username, Pageable pageable) {
+        long afterId = cursor != null && !cursor.isBlank() ? HoaxCursor.decode(cursor) : id;
+        Long userId = findUserId(username);
+        int size = pageable.getPageSize();
+        List<HoaxVM> newestFirst;
+        boolean truncated;
+        Optional<List<HoaxVM>> buffered = feedBuffer.newerThan(afterId, userId);
+        if (buffered.isPresent()) {
+            List<HoaxVM> newest = buffered.get();
+            truncated = newest.size() > size;
+            newestFirst = newest.subList(Math.max(newest.size() - size, 0), newest.size());
+        } else {
+            Pageable oldestPage = PageRequest.of(0, size, Sort.by(Sort.Direction.ASC, "id"));
+            Slice<Hoax> hoaxes = userId == null
+                    ? hoaxRepository.findByIdGreaterThan(afterId, oldestPage)
+                    : hoaxRepository.findByUserIdAndIdGreaterThan(userId, afterId, oldestPage);
+            truncated = hoaxes.hasNext();
+            newestFirst = new ArrayList<>(hoaxes.map(HoaxVM::new).getContent());
+            Collections.reverse(newestFirst);
         }
-        return hoaxRepository.findAll(spec, pageable.getSort());
+        String nextCursor = newestFirst.isEmpty() ? null : HoaxCursor.encode(newestFirst.get(0).getId());
+        return new HoaxCatchUpVM(newestFirst, truncated, nextCursor);
     }
 
     public long getNewHoaxesCount(long id, String username) {
+        Long userId = findUserId(username);
+        Optional<List<HoaxVM>> buffered = feedBuffer.newerThan(id, userId);
+        if (buffered.isPresent()) {
+            return buffered.get().size();
+        }
         Specification<Hoax> spec = Specification.where(idGreaterThan(id));
-        if (username != null) {
-            User inDB = userService.getByUsername(username);
-            spec = spec.and(userIs(inDB));
+        if (userId != null) {
+            spec = spec.and(userIdIs(userId));
         }
         return hoaxRepository.count(spec);
     }
 
-    private Specification<Hoax> userIs(User user) {
-        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("user"), user);
+    private Slice<HoaxVM> toSlice(List<HoaxVM> latest, Pageable pageable, TotalsMode totals) {
+        boolean hasNext = latest.size() > pageable.getPageSize();
+        List<HoaxVM> content = hasNext ? latest.subList(0, pageable.getPageSize()) : latest;
+        if (totals == TotalsMode.NONE) {
+            return new SliceImpl<>(content, pageable, hasNext);
+        }
+        return ApproximateCounter.toPage(content, pageable, hasNext, feedBuffer.total());
+    }
+
+    private boolean isIdOrder(Sort sort) {
+        return sort.isUnsorted() || (sort.stream().count() == 1 && sort.getOrderFor("id") != null);
+    }
+
+    private Long findUserId(String username) {
+        return username != null ? userService.getProjectionByUsername(username).getId() : null;
+    }
+
+    private Specification<Hoax> userIdIs(long userId) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("user").get("id"), userId);
     }
 
     private Specification<Hoax> idLessThan(long id) {
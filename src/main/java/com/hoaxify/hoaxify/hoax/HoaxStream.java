@@ -0,0 +1,204 @@
+package com.hoaxify.hoaxify.hoax;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.hoax.vm.HoaxVM;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans saved hoaxes out to Server-Sent Events subscribers. Each subscriber has a bounded queue drained by a shared
+ * dispatcher; a subscriber that falls behind is completed and is expected to reconnect and catch up with
+ * {@code /hoaxes/{id}?direction=after}. A subscriber whose send blocks longer than {@code hoaxify.stream-send-timeout},
+ * a slow or half-open client, is dropped so nothing more is queued for it. Neither the publisher nor the watchdog ever
+ * touches an emitter: a blocked send holds the emitter's lock, so only the dispatcher thread completes it.
+ */
+@Component
+public class HoaxStream {
+
+    private static final HoaxVM HEARTBEAT = new HoaxVM();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService dispatcher;
+
+    private final ScheduledExecutorService heartbeat;
+
+    private final int queueCapacity;
+
+    private final long timeoutMillis;
+
+    private final long sendTimeoutNanos;
+
+    public HoaxStream(AppConfiguration appConfiguration) {
+        this.queueCapacity = appConfiguration.getStreamQueueCapacity();
+        this.timeoutMillis = appConfiguration.getStreamTimeout().toMillis();
+        this.sendTimeoutNanos = appConfiguration.getStreamSendTimeout().toNanos();
+        AtomicInteger count = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(appConfiguration.getStreamDispatcherThreads(),
+                runnable -> daemon(runnable, "hoax-stream-" + count.incrementAndGet()));
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "hoax-stream-heartbeat"));
+        long heartbeatMillis = appConfiguration.getStreamHeartbeat().toMillis();
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        long checkMillis = Math.max(appConfiguration.getStreamSendTimeout().toMillis() / 2, 1);
+        heartbeat.scheduleWithFixedDelay(this::dropStalled, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        Subscriber subscriber = new Subscriber(newEmitter(timeoutMillis), userId);
+        subscriber.emitter.onCompletion(subscriber::finished);
+        subscriber.emitter.onTimeout(subscriber::finished);
+        subscriber.emitter.onError(e -> subscriber.finished());
+        subscribers.add(subscriber);
+        return subscriber.emitter;
+    }
+
+    protected SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    public void publish(HoaxVM hoax) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.userId == null || subscriber.userId == hoax.getUser().getId()) {
+                subscriber.offer(hoax);
+            }
+        }
+    }
+
+    private void sendHeartbeat() {
+        subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT));
+    }
+
+    private void dropStalled() {
+        long now = System.nanoTime();
+        subscribers.forEach(subscriber -> subscriber.closeIfSendingSince(now - sendTimeoutNanos));
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        heartbeat.shutdownNow();
+        subscribers.forEach(Subscriber::close);
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(sendTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private class Subscriber {
+
+        final SseEmitter emitter;
+
+        final Long userId;
+
+        final BlockingQueue<HoaxVM> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        final AtomicBoolean completed = new AtomicBoolean();
+
+        // set by whichever thread drops the subscriber; only a draining thread completes the emitter
+        volatile boolean closed;
+
+        // when the send in progress started, 0 while no send is in progress
+        volatile long sendingSince;
+
+        Subscriber(SseEmitter emitter, Long userId) {
+            this.emitter = emitter;
+            this.userId = userId;
+        }
+
+        void offer(HoaxVM hoax) {
+            if (!queue.offer(hoax)) {
+                close();
+                return;
+            }
+            schedule();
+        }
+
+        /**
+         * Drops the subscriber without touching the emitter, whose lock a blocked send holds. The emitter is completed
+         * by the dispatcher thread once that send returns, or by a fresh drain if none is in progress.
+         */
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            schedule();
+        }
+
+        /**
+         * Called back once the emitter has completed, timed out or failed on its own.
+         */
+        void finished() {
+            completed.set(true);
+            closed = true;
+            subscribers.remove(this);
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        void drain() {
+            try {
+                HoaxVM hoax;
+                while (!closed && (hoax = queue.poll()) != null) {
+                    sendingSince = System.nanoTime();
+                    try {
+                        if (hoax == HEARTBEAT) {
+                            emitter.send(SseEmitter.event().comment("heartbeat"));
+                        } else {
+                            emitter.send(SseEmitter.event().id(String.valueOf(hoax.getId())).name("hoax").data(hoax));
+                        }
+                    } finally {
+                        sendingSince = 0;
+                    }
+                }
+                if (closed) {
+                    queue.clear();
+                    if (completed.compareAndSet(false, true)) {
+                        emitter.complete();
+                    }
+                    return;
+                }
+            } catch (Exception e) {
+                closed = true;
+                subscribers.remove(this);
+                queue.clear();
+                if (completed.compareAndSet(false, true)) {
+                    emitter.completeWithError(e);
+                }
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            // an offer or a close that raced the end of the loop found this drain still scheduled
+            if (!queue.isEmpty() || closed) {
+                schedule();
+            }
+        }
+
+        void closeIfSendingSince(long deadline) {
+            long since = sendingSince;
+            if (since != 0 && since - deadline < 0) {
+                close();
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.hoaxify.hoaxify.hoax;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.error.BadRequestException;
+import com.hoaxify.hoaxify.hoax.vm.HoaxVM;
+import com.hoaxify.hoaxify.user.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Moves hoaxes in and out as NDJSON, one {@link HoaxVM} per line, without holding more than a batch in memory.
+ */
+@Service
+public class HoaxTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(HoaxTransferService.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    HoaxRepository hoaxRepository;
+
+    HoaxService hoaxService;
+
+    EntityManager entityManager;
+
+    TransactionTemplate transactionTemplate;
+
+    Validator validator;
+
+    ObjectWriter writer;
+
+    ObjectReader reader;
+
+    AppConfiguration appConfiguration;
+
+    public HoaxTransferService(HoaxRepository hoaxRepository, HoaxService hoaxService, EntityManager entityManager, TransactionTemplate transactionTemplate, Validator validator,
+                               ObjectMapper objectMapper, AppConfiguration appConfiguration) {
+        this.hoaxRepository = hoaxRepository;
+        this.hoaxService = hoaxService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.writer = objectMapper.writerFor(HoaxVM.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.reader = objectMapper.readerFor(HoaxVM.class);
+        this.appConfiguration = appConfiguration;
+    }
+
+    /**
+     * Streams every hoax, oldest first, from a forward-only cursor in a read-only transaction. The persistence context
+     * is cleared after each batch so loaded rows can be collected while the export runs.
+     */
+    public void exportAll(OutputStream out) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<Hoax> hoaxes = hoaxRepository.streamAll()) {
+                long[] written = {0};
+                hoaxes.forEach(hoax -> {
+                    try {
+                        writer.writeValue(out, new HoaxVM(hoax));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new HoaxExportException(e);
+                    }
+                    if (++written[0] % BATCH_SIZE == 0) {
+                        entityManager.clear();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Reads HoaxVM lines incrementally and inserts them in batches of {@value #BATCH_SIZE}, each in its own
+     * transaction. Hoaxes keep their content and date and get new ids. Every line must name the importing user in
+     * {@code user}, hoaxes of anyone else are refused with 403. The first invalid line stops the import; the batches
+     * before it stay committed.
+     *
+     * @return the number of imported hoaxes
+     */
+    public long importAll(InputStream in, User importer) throws IOException {
+        List<Hoax> batch = new ArrayList<>(BATCH_SIZE);
+        long imported = 0;
+        long line = 0;
+        try {
+            try (MappingIterator<HoaxVM> lines = reader.readValues(in)) {
+                while (lines.hasNextValue()) {
+                    line++;
+                    HoaxVM hoaxVM;
+                    try {
+                        hoaxVM = lines.nextValue();
+                    } catch (JsonProcessingException e) {
+                        throw invalidLine(line, imported, e.getOriginalMessage());
+                    }
+                    batch.add(toHoax(hoaxVM, line, imported, importer));
+                    if (batch.size() == BATCH_SIZE) {
+                        imported += insert(batch);
+                    }
+                }
+            }
+            imported += insert(batch);
+            return imported;
+        } finally {
+            if (imported > 0) {
+                rewarmFeedBuffer();
+            }
+        }
+    }
+
+    /**
+     * Batches committed before a failing line are imported too, so this runs however the import ends. Failing to warm
+     * leaves the buffer invalidated, which only sends feed reads to the database.
+     */
+    private void rewarmFeedBuffer() {
+        try {
+            hoaxService.refreshFeedBuffer();
+        } catch (RuntimeException e) {
+            log.warn("Feed buffer could not be warmed after an import", e);
+        }
+    }
+
+    private Hoax toHoax(HoaxVM hoaxVM, long line, long imported, User importer) {
+        if (hoaxVM.getUser() == null || hoaxVM.getUser().getUsername() == null) {
+            throw invalidLine(line, imported, "user.username is required");
+        }
+        String username = hoaxVM.getUser().getUsername();
+        if (!username.equals(importer.getUsername())) {
+            throw new AccessDeniedException("Line " + line + ": hoaxes of " + username + " can only be imported by "
+                    + username + " (" + imported + " hoaxes before it were imported)");
+        }
+        Hoax hoax = new Hoax();
+        hoax.setContent(hoaxVM.getContent());
+        hoax.setTimestamp(hoaxVM.getDate() > 0 ? new Date(hoaxVM.getDate()) : new Date());
+        hoax.setUser(entityManager.getReference(User.class, importer.getId()));
+        Set<ConstraintViolation<Hoax>> violations = validator.validate(hoax);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<Hoax> violation = violations.iterator().next();
+            throw invalidLine(line, imported, violation.getPropertyPath() + " " + violation.getMessage());
+        }
+        return hoax;
+    }
+
+    /**
+     * Flushes the batch as JDBC batch inserts and clears the persistence context, which the open-session-in-view
+     * request would otherwise keep growing across batches.
+     */
+    private int insert(List<Hoax> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            hoaxRepository.saveAll(batch);
+            entityManager.flush();
+            entityManager.clear();
+        });
+        hoaxService.invalidateFeedBuffer();
+        int inserted = batch.size();
+        batch.clear();
+        return inserted;
+    }
+
+    private static BadRequestException invalidLine(long line, long imported, String problem) {
+        return new BadRequestException("Line " + line + ": " + problem + " (" + imported + " hoaxes before it were imported)");
+    }
+
+    public boolean isImportEnabled() {
+        return appConfiguration.isHoaxImportEnabled();
+    }
+}
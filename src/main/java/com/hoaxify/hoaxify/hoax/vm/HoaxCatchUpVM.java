@@ -0,0 +1,23 @@
+package com.hoaxify.hoaxify.hoax.vm;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class HoaxCatchUpVM {
+
+    private List<HoaxVM> content;
+
+    private boolean truncated;
+
+    private String nextCursor;
+
+    public HoaxCatchUpVM(List<HoaxVM> content, boolean truncated, String nextCursor) {
+        this.content = content;
+        this.truncated = truncated;
+        this.nextCursor = nextCursor;
+    }
+}
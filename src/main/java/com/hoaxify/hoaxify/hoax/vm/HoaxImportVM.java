@@ -0,0 +1,13 @@
+package com.hoaxify.hoaxify.hoax.vm;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoaxImportVM {
+
+    private long imported;
+}
@@ -0,0 +1,137 @@
+package com.hoaxify.hoaxify.shared;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Serves row counts from memory so paged endpoints can report totals without a count query per request. Only the
+ * first read of a key counts on the request thread; once a count is older than the refresh interval it keeps being
+ * served while a background thread recounts it. A refresh interval of zero counts on every read.
+ * <p>
+ * The count is only a display total: {@link #toPage} keeps {@code hasNext} and the last page from the slice itself.
+ */
+@Component
+public class ApproximateCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(ApproximateCounter.class);
+
+    private static final int MAX_KEYS = 10_000;
+
+    // least recently read key first, so a full map evicts one cold key at a time
+    private final Map<String, Count> counts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Count> eldest) {
+            return size() > MAX_KEYS;
+        }
+    };
+
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "approximate-count-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long refreshMillis;
+
+    public ApproximateCounter(AppConfiguration appConfiguration) {
+        this.refreshMillis = appConfiguration.getApproximateCountRefresh().toMillis();
+    }
+
+    public long get(String key, LongSupplier exactCount) {
+        if (refreshMillis <= 0) {
+            return exactCount.getAsLong();
+        }
+        long now = System.currentTimeMillis();
+        Count count;
+        synchronized (counts) {
+            count = counts.get(key);
+            if (count != null && !count.refreshing && now - count.refreshedAt >= refreshMillis) {
+                count.refreshing = true;
+                refresh(key, count, exactCount);
+            }
+        }
+        if (count != null) {
+            return count.value;
+        }
+        long value = exactCount.getAsLong();
+        synchronized (counts) {
+            counts.putIfAbsent(key, new Count(value, now));
+        }
+        return value;
+    }
+
+    private void refresh(String key, Count stale, LongSupplier exactCount) {
+        try {
+            refresher.execute(() -> {
+                long now = System.currentTimeMillis();
+                try {
+                    long value = exactCount.getAsLong();
+                    synchronized (counts) {
+                        counts.replace(key, stale, new Count(value, now));
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Could not refresh the approximate count of {}", key, e);
+                    synchronized (counts) {
+                        stale.refreshing = false;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            stale.refreshing = false;
+        }
+    }
+
+    public <T> Page<T> toPage(Slice<T> slice, String key, LongSupplier exactCount) {
+        return toPage(slice.getContent(), slice.getPageable(), slice.hasNext(), get(key, exactCount));
+    }
+
+    /**
+     * Pages {@code content} with {@code approximateTotal} clamped to what the slice proves, so {@code hasNext},
+     * {@code isLast} and {@code totalPages} follow the rows actually read rather than a stale count.
+     */
+    public static <T> Page<T> toPage(List<T> content, Pageable pageable, boolean hasNext, long approximateTotal) {
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        long read = offset + content.size();
+        long total;
+        if (hasNext) {
+            total = Math.max(approximateTotal, read + 1);
+        } else if (!content.isEmpty() || offset == 0) {
+            total = read;
+        } else {
+            total = Math.min(approximateTotal, offset);
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private static class Count {
+        final long value;
+        final long refreshedAt;
+        // guarded by counts
+        boolean refreshing;
+
+        Count(long value, long refreshedAt) {
+            this.value = value;
+            this.refreshedAt = refreshedAt;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.hoaxify.hoaxify.shared;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content;
+
+    private int size;
+
+    private boolean next;
+
+    private String nextCursor;
+
+    public CursorPage(List<T> content, int size, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.next = nextCursor != null;
+        this.nextCursor = nextCursor;
+    }
+}
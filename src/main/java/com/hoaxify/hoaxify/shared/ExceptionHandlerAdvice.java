@@ -1,6 +1,8 @@
 package com.hoaxify.hoaxify.shared;
 
 import com.hoaxify.hoaxify.error.ApiError;
+import com.hoaxify.hoaxify.user.DuplicateUsernameException;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
@@ -8,10 +10,12 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.ResourceBundle;
 
 @RestControllerAdvice
 public class ExceptionHandlerAdvice {
@@ -28,4 +32,23 @@ public class ExceptionHandlerAdvice {
         apiError.setValidationErrors(validationErrors);
         return apiError;
     }
+
+    /**
+     * A username race lost at the unique constraint is reported like the {@code @UniqueUsername} validation error.
+     */
+    @ExceptionHandler({DuplicateUsernameException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    ApiError handleDuplicateUsernameException(HttpServletRequest req) {
+        ApiError apiError = new ApiError(400, "Validation error", req.getServletPath());
+        ResourceBundle messages = ResourceBundle.getBundle("ValidationMessages", LocaleContextHolder.getLocale());
+        apiError.setValidationErrors(Map.of("username",
+                messages.getString("hoaxify.constraints.username.UniqueUsername.message")));
+        return apiError;
+    }
+
+    @ExceptionHandler({MaxUploadSizeExceededException.class})
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    ApiError handleMaxUploadSizeExceededException(HttpServletRequest req) {
+        return new ApiError(413, "Upload too large", req.getServletPath());
+    }
 }
@@ -0,0 +1,116 @@
+package com.hoaxify.hoaxify.shared;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Small size-bounded LRU cache whose entries expire a fixed time after they were loaded.
+ */
+public class ExpiringCache<K, V> {
+
+    private final long ttlMillis;
+
+    private final Map<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    // guarded by entries, bumped by every invalidation so a load that overlapped one does not store its result
+    private long generation;
+
+    public ExpiringCache(int maxSize, Duration ttl) {
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value or loads it; {@code null} results are not cached, nor are results of a load that an
+     * {@link #invalidate} overlapped, since the loader may have read the state from before the change.
+     */
+    public V get(K key, Function<K, V> loader) {
+        long now = System.currentTimeMillis();
+        long loadGeneration;
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                hits.increment();
+                return entry.value;
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        V value = loader.apply(key);
+        if (value != null && ttlMillis > 0) {
+            synchronized (entries) {
+                if (generation == loadGeneration) {
+                    entries.put(key, new Entry<>(value, now + ttlMillis));
+                }
+            }
+        }
+        return value;
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            generation++;
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Publishes hit/miss counters as {@code cache.gets} and the entry count as {@code cache.size}, tagged with the cache name.
+     */
+    public ExpiringCache<K, V> bindTo(MeterRegistry registry, String name) {
+        FunctionCounter.builder("cache.gets", this, ExpiringCache::getHits)
+                .tags("cache", name, "result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", this, ExpiringCache::getMisses)
+                .tags("cache", name, "result", "miss").register(registry);
+        Gauge.builder("cache.size", this, ExpiringCache::size)
+                .tags("cache", name).register(registry);
+        return this;
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
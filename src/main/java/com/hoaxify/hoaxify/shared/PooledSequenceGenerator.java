@@ -0,0 +1,30 @@
+package com.hoaxify.hoaxify.shared;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * A sequence generator with the pooled-lo optimizer: one sequence call reserves a block of ids that are then handed
+ * out in memory, so batched inserts do not pay a round trip per row. The block size is the
+ * {@value #ALLOCATION_SIZE} Hibernate setting, filled in from {@code hoaxify.id-allocation-size}.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE = "hoaxify.id.allocation_size";
+
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Object allocationSize = serviceRegistry.getService(ConfigurationService.class).getSettings().get(ALLOCATION_SIZE);
+        params.setProperty(INCREMENT_PARAM, allocationSize != null ? allocationSize.toString() : String.valueOf(DEFAULT_ALLOCATION_SIZE));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -5,7 +5,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.validation.ConstraintValidator;
 import javax.validation.ConstraintValidatorContext;
-import java.util.Base64;
 
 public class ProfileImageValidator implements ConstraintValidator<ProfileImage, String> {
 
@@ -18,12 +17,10 @@ public class ProfileImageValidator implements ConstraintValidator<ProfileImage,
             return true;
         }
 
-        byte[] decodedBytes = Base64.getDecoder().decode(value);
-        String fileType = fileService.detectType(decodedBytes);
-        if (fileType.equalsIgnoreCase("image/png") || fileType.equalsIgnoreCase("image/jpeg")) {
-            return true;
+        try {
+            return fileService.isSupportedImageType(fileService.detectTypeOfBase64(value));
+        } catch (IllegalArgumentException e) {
+            return false;
         }
-
-        return false;
     }
 }
@@ -0,0 +1,7 @@
+package com.hoaxify.hoaxify.shared;
+
+public enum TotalsMode {
+    EXACT,
+    APPROXIMATE,
+    NONE
+}
@@ -1,15 +1,28 @@
 package com.hoaxify.hoaxify.user;
 
+import com.hoaxify.hoaxify.configuration.TokenService;
 import com.hoaxify.hoaxify.shared.CurrentUser;
-import com.hoaxify.hoaxify.user.vm.UserVM;
+import com.hoaxify.hoaxify.shared.GenericResponse;
+import com.hoaxify.hoaxify.user.vm.LoginVM;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 public class LoginController {
 
+    @Autowired
+    TokenService tokenService;
+
     @PostMapping("/api/1.0/login")
-    UserVM handleLogin(@CurrentUser User loggedInUser) {
-        return new UserVM(loggedInUser);
+    LoginVM handleLogin(@CurrentUser User loggedInUser) {
+        TokenService.Token token = tokenService.issue(loggedInUser);
+        return new LoginVM(loggedInUser, token.getValue(), token.getExpiresAt());
+    }
+
+    @PostMapping("/api/1.0/logout")
+    GenericResponse handleLogout(@CurrentUser User loggedInUser) {
+        tokenService.revokeAll(loggedInUser.getId());
+        return new GenericResponse("Logged out");
     }
 }
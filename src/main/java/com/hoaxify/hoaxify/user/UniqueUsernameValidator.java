@@ -10,8 +10,14 @@ public class UniqueUsernameValidator implements ConstraintValidator<UniqueUserna
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    UsernameFilter usernameFilter;
+
     @Override
     public boolean isValid(String value, ConstraintValidatorContext context) {
+        if (value != null && !usernameFilter.mightExist(value)) {
+            return true;
+        }
         return userRepository.findByUsername(value) == null;
     }
 }
@@ -2,11 +2,21 @@ package com.hoaxify.hoaxify.user;
 
 import com.hoaxify.hoaxify.hoax.Hoax;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
@@ -17,16 +27,32 @@ import java.beans.Transient;
 import java.util.Collection;
 import java.util.List;
 
+/**
+ * Users are read on every username lookup and change rarely, so they live in the second-level cache by id and by username.
+ */
 @Data
 @Entity(name = "users")
+@EntityListeners(UserEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.ENTITY_CACHE)
+@NaturalIdCache(region = User.USERNAME_CACHE)
 public class User implements UserDetails {
+
+    public static final String ENTITY_CACHE = "users";
+
+    public static final String USERNAME_CACHE = "users-by-username";
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "user_id")
+    @GenericGenerator(name = "user_id", strategy = "com.hoaxify.hoaxify.shared.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "users_seq"))
     private long id;
 
     @NotNull(message = "{hoaxify.constraints.username.NotNull.message}")
     @Size(min = 4, max = 255)
     @UniqueUsername
+    @NaturalId
+    @Column(unique = true)
     private String username;
 
     @NotNull
@@ -41,6 +67,8 @@ public class User implements UserDetails {
 
     private String image;
 
+    private boolean imageVariantsReady;
+
     @OneToMany(mappedBy = "user")
     private List<Hoax> hoaxes;
 
@@ -0,0 +1,13 @@
+package com.hoaxify.hoaxify.user;
+
+import lombok.Getter;
+
+@Getter
+public class UserChangedEvent {
+
+    private final User user;
+
+    public UserChangedEvent(User user) {
+        this.user = user;
+    }
+}
@@ -1,12 +1,16 @@
 package com.hoaxify.hoaxify.user;
 
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.file.ImageTooLargeException;
 import com.hoaxify.hoaxify.shared.CurrentUser;
 import com.hoaxify.hoaxify.shared.GenericResponse;
+import com.hoaxify.hoaxify.shared.TotalsMode;
 import com.hoaxify.hoaxify.user.vm.UserUpdateVM;
 import com.hoaxify.hoaxify.user.vm.UserVM;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,9 +18,16 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("api/1.0")
@@ -25,6 +36,9 @@ public class UserController {
     @Autowired
     UserService userService;
 
+    @Autowired
+    AppConfiguration appConfiguration;
+
     @PostMapping("users")
     GenericResponse createUser(@RequestBody @Valid User user) {
         userService.save(user);
@@ -32,10 +46,11 @@ public class UserController {
     }
 
     @GetMapping("users")
-    Page<UserVM> getUsers(/*@PageableDefault(size = 10)*/
+    Slice<UserVM> getUsers(/*@PageableDefault(size = 10)*/
             @CurrentUser User loggedInUser,
-            Pageable pageable) {
-        return userService.getUsers(loggedInUser, pageable).map(UserVM::new);
+            Pageable pageable,
+            @RequestParam(name = "totals", defaultValue = "exact") TotalsMode totals) {
+        return userService.getUsers(loggedInUser, pageable, totals).map(UserVM::new);
     }
 
     @GetMapping("users/{username}")
@@ -46,9 +61,27 @@ public class UserController {
 
     @PutMapping("/users/{id:[0-9]+}")
     @PreAuthorize("#id == principal.id")
-    UserVM updateUser(@PathVariable long id, @Valid @RequestBody(required = false) UserUpdateVM userUpdate) {
-        User updated = userService.update(id, userUpdate);
-        return new UserVM(updated);
+    CompletableFuture<UserVM> updateUser(@PathVariable long id, @Valid @RequestBody(required = false) UserUpdateVM userUpdate) {
+        return userService.update(id, userUpdate).thenApply(UserVM::new);
+    }
+
+    @PutMapping(path = "/users/{id:[0-9]+}/image", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @PreAuthorize("#id == principal.id")
+    CompletableFuture<UserVM> updateUserImage(@PathVariable long id, HttpServletRequest request) throws IOException {
+        if (request.getContentLengthLong() > appConfiguration.getMaxImageSize().toBytes()) {
+            throw new ImageTooLargeException(appConfiguration.getMaxImageSize().toBytes());
+        }
+        try (InputStream image = request.getInputStream()) {
+            return userService.updateImage(id, image).thenApply(UserVM::new);
+        }
+    }
+
+    @PutMapping(path = "/users/{id:[0-9]+}/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("#id == principal.id")
+    CompletableFuture<UserVM> updateUserImage(@PathVariable long id, @RequestPart("image") MultipartFile file) throws IOException {
+        try (InputStream image = file.getInputStream()) {
+            return userService.updateImage(id, image).thenApply(UserVM::new);
+        }
     }
 
 }
@@ -0,0 +1,20 @@
+package com.hoaxify.hoaxify.user;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostRemove;
+
+/**
+ * Lets caches keyed by username drop a user that was deleted through JPA.
+ */
+public class UserEntityListener {
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @PostRemove
+    void onRemove(User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(user));
+    }
+}
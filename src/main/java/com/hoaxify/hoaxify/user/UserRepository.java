@@ -2,11 +2,27 @@ package com.hoaxify.hoaxify.user;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+import java.util.List;
+import java.util.stream.Stream;
 
-    User findByUsername(String username);
+public interface UserRepository extends JpaRepository<User, Long>, UsernameLookup {
+
+    UserProjection findProjectedByUsername(String username);
+
+    List<User> findByImage(String image);
+
+    long countByImage(String image);
 
     Page<User> findByUsernameNot(String username, Pageable pageable);
+
+    Slice<User> findSliceBy(Pageable pageable);
+
+    Slice<User> findSliceByUsernameNot(String username, Pageable pageable);
+
+    @Query("select u.username from users u")
+    Stream<String> streamAllUsernames();
 }
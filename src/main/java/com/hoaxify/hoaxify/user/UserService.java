@@ -1,37 +1,108 @@
 package com.hoaxify.hoaxify.user;
 
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
 import com.hoaxify.hoaxify.error.NotFoundException;
 import com.hoaxify.hoaxify.file.FileService;
+import com.hoaxify.hoaxify.file.ImageIoExecutor;
+import com.hoaxify.hoaxify.file.ImageVariantService;
+import com.hoaxify.hoaxify.file.StagedImage;
+import com.hoaxify.hoaxify.shared.ApproximateCounter;
+import com.hoaxify.hoaxify.shared.ExpiringCache;
+import com.hoaxify.hoaxify.shared.TotalsMode;
 import com.hoaxify.hoaxify.user.vm.UserUpdateVM;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
     UserRepository userRepository;
 
     PasswordEncoder passwordEncoder;
 
     FileService fileService;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, FileService fileService) {
+    ApproximateCounter approximateCounter;
+
+    ApplicationEventPublisher eventPublisher;
+
+    ExpiringCache<String, UserProjection> usernameCache;
+
+    UsernameFilter usernameFilter;
+
+    ImageVariantService imageVariantService;
+
+    ImageIoExecutor imageIoExecutor;
+
+    TransactionTemplate transactionTemplate;
+
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, FileService fileService,
+                       ImageVariantService imageVariantService, ImageIoExecutor imageIoExecutor, TransactionTemplate transactionTemplate,
+                       ApproximateCounter approximateCounter, ApplicationEventPublisher eventPublisher,
+                       UsernameFilter usernameFilter, AppConfiguration appConfiguration, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.fileService = fileService;
+        this.imageVariantService = imageVariantService;
+        this.imageIoExecutor = imageIoExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.approximateCounter = approximateCounter;
+        this.eventPublisher = eventPublisher;
+        this.usernameFilter = usernameFilter;
+        this.usernameCache = new ExpiringCache<String, UserProjection>(appConfiguration.getUsernameCacheSize(), appConfiguration.getUsernameCacheTtl())
+                .bindTo(meterRegistry, "usernames");
     }
 
     public User save(User user) {
-        User inDB = userRepository.findByUsername(user.getUsername());
-        if (inDB != null) {
+        if (usernameFilter.mightExist(user.getUsername()) && userRepository.findByUsername(user.getUsername()) != null) {
             throw new DuplicateUsernameException();
         }
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        User saved;
+        try {
+            saved = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateUsernameException();
+        }
+        usernameFilter.add(saved.getUsername());
+        eventPublisher.publishEvent(new UserChangedEvent(saved));
+        return saved;
+    }
+
+    /**
+     * Bulk variant of {@link #save} for seeding and imports: one transaction and JDBC batch for all users, so a
+     * duplicate username rejects the whole batch.
+     */
+    public List<User> saveAll(List<User> users) {
+        users.forEach(user -> user.setPassword(passwordEncoder.encode(user.getPassword())));
+        List<User> saved;
+        try {
+            saved = transactionTemplate.execute(status -> userRepository.saveAll(users));
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateUsernameException();
+        }
+        for (User user : saved) {
+            usernameFilter.add(user.getUsername());
+            eventPublisher.publishEvent(new UserChangedEvent(user));
+        }
+        return saved;
     }
 
     public Page<User> getUsers(User loggedInUser, Pageable pageable) {
@@ -41,6 +112,29 @@ public class UserService {
         return userRepository.findAll(pageable);
     }
 
+    public Slice<User> getUsers(User loggedInUser, Pageable pageable, TotalsMode totals) {
+        if (totals == TotalsMode.EXACT) {
+            return getUsers(loggedInUser, pageable);
+        }
+        Slice<User> users = loggedInUser != null
+                ? userRepository.findSliceByUsernameNot(loggedInUser.getUsername(), pageable)
+                : userRepository.findSliceBy(pageable);
+        if (totals == TotalsMode.NONE) {
+            return users;
+        }
+        long total = approximateCounter.get("users", userRepository::count);
+        return ApproximateCounter.toPage(users.getContent(), pageable, users.hasNext(),
+                loggedInUser != null ? total - 1 : total);
+    }
+
+    /**
+     * Covers every change, including deletes through JPA that only {@link UserEntityListener} sees.
+     */
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        usernameCache.invalidate(event.getUser().getUsername());
+    }
+
     public User getByUsername(String username) {
         User inDB =  userRepository.findByUsername(username);
         if (inDB == null) {
@@ -49,18 +143,115 @@ public class UserService {
         return inDB;
     }
 
-    public User update(long id, UserUpdateVM userUpdate) {
-        User inDB = userRepository.getReferenceById(id);
-        inDB.setDisplayName(userUpdate.getDisplayName());
-        if (userUpdate.getImage() != null) {
-            try {
-                String savedImageName = fileService.saveProfileImage(userUpdate.getImage());
-                fileService.deleteProfileImage(inDB.getImage());
-                inDB.setImage(savedImageName);
-            } catch (IOException e) {
-                e.printStackTrace();
+    public UserProjection getProjectionByUsername(String username) {
+        UserProjection inDB = usernameCache.get(username, userRepository::findProjectedByUsername);
+        if (inDB == null) {
+            throw new NotFoundException(username + " not found");
+        }
+        return inDB;
+    }
+
+    /**
+     * A new image is decoded, written and committed on the {@link ImageIoExecutor}; a display name alone is saved
+     * right away.
+     */
+    public CompletableFuture<User> update(long id, UserUpdateVM userUpdate) {
+        if (userUpdate.getImage() == null) {
+            User inDB = userRepository.getReferenceById(id);
+            inDB.setDisplayName(userUpdate.getDisplayName());
+            return CompletableFuture.completedFuture(saveUpdated(inDB));
+        }
+        return imageIoExecutor.submit(() ->
+                saveWithImage(id, userUpdate.getDisplayName(), fileService.stageProfileImage(userUpdate.getImage())));
+    }
+
+    /**
+     * The request body is read into a staged file on the calling thread, the rest runs on the {@link ImageIoExecutor}.
+     */
+    public CompletableFuture<User> updateImage(long id, InputStream image) throws IOException {
+        StagedImage staged = fileService.stageProfileImage(image);
+        return imageIoExecutor.submit(() -> saveWithImage(id, null, staged))
+                .whenComplete((updated, e) -> fileService.discard(staged));
+    }
+
+    public void markImageVariantsReady(String image) {
+        List<User> users = userRepository.findByImage(image);
+        users.forEach(user -> user.setImageVariantsReady(true));
+        for (User updated : userRepository.saveAll(users)) {
+            eventPublisher.publishEvent(new UserChangedEvent(updated));
+        }
+    }
+
+    /**
+     * Moves the staged image into place and then points the user at it in a transaction of its own, all under the
+     * image lock, so a concurrent release of the same content-addressed name either runs first or sees the new
+     * reference. The previous image is released only after that transaction committed; if it fails, the new image is
+     * released instead and the user keeps the old one.
+     */
+    private User saveWithImage(long id, String displayName, StagedImage staged) throws IOException {
+        String[] previousImage = new String[1];
+        User updated;
+        try {
+            synchronized (fileService.lockFor(staged.getName())) {
+                fileService.commit(staged);
+                try {
+                    updated = transactionTemplate.execute(status -> {
+                        User inDB = userRepository.findById(id)
+                                .orElseThrow(() -> new NotFoundException("User " + id + " not found"));
+                        previousImage[0] = inDB.getImage();
+                        if (displayName != null) {
+                            inDB.setDisplayName(displayName);
+                        }
+                        inDB.setImage(staged.getName());
+                        inDB.setImageVariantsReady(false);
+                        return userRepository.save(inDB);
+                    });
+                } catch (RuntimeException e) {
+                    releaseImage(staged.getName());
+                    throw e;
+                }
             }
+        } finally {
+            fileService.discard(staged);
+        }
+        eventPublisher.publishEvent(new UserChangedEvent(updated));
+        if (!staged.getName().equals(previousImage[0])) {
+            releaseImage(previousImage[0]);
+        }
+        generateImageVariants(staged.getName());
+        return updated;
+    }
+
+    /**
+     * Deletes an image no user points at any more; content-addressed images may be shared, so they are counted first.
+     */
+    private void releaseImage(String image) {
+        if (image == null) {
+            return;
         }
-        return userRepository.save(inDB);
+        synchronized (fileService.lockFor(image)) {
+            if (!fileService.isContentAddressed() || userRepository.countByImage(image) == 0) {
+                fileService.deleteProfileImage(image);
+            }
+        }
+    }
+
+    private void generateImageVariants(String image) {
+        imageVariantService.generate(image)
+                .thenAccept(ready -> {
+                    if (ready) {
+                        markImageVariantsReady(image);
+                    }
+                })
+                .exceptionally(e -> {
+                    log.warn("Variant generation failed for {}", image, e);
+                    return null;
+                });
+    }
+
+    private User saveUpdated(User inDB) {
+        User updated = userRepository.save(inDB);
+        eventPublisher.publishEvent(new UserChangedEvent(updated));
+        return updated;
     }
 }
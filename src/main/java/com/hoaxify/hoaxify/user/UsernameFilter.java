@@ -0,0 +1,65 @@
+package com.hoaxify.hoaxify.user;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.shared.BloomFilter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filter of taken usernames. A {@code false} from {@link #mightExist} is definite and lets callers
+ * skip the database; anything else, including every answer before the filter is built, needs a real lookup.
+ * Deleted usernames stay in the filter and only cost that extra lookup.
+ */
+@Component
+public class UsernameFilter {
+
+    private final UserRepository userRepository;
+
+    private final AppConfiguration appConfiguration;
+
+    private volatile BloomFilter filter;
+
+    private volatile BloomFilter building;
+
+    public UsernameFilter(UserRepository userRepository, AppConfiguration appConfiguration) {
+        this.userRepository = userRepository;
+        this.appConfiguration = appConfiguration;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long expected = Math.max(appConfiguration.getUsernameFilterCapacity(), 2 * userRepository.count());
+        BloomFilter next = new BloomFilter(expected, appConfiguration.getUsernameFilterFalsePositiveRate());
+        building = next;
+        try (Stream<String> usernames = userRepository.streamAllUsernames()) {
+            usernames.forEach(next::add);
+        }
+        filter = next;
+        building = null;
+    }
+
+    public boolean mightExist(String username) {
+        BloomFilter current = filter;
+        return current == null || current.mightContain(username);
+    }
+
+    /**
+     * Must be called after the user row is committed. {@code building} is read before {@code filter} so a username
+     * saved while {@link #rebuild} runs lands in the new filter either directly or through the rebuild query.
+     */
+    public void add(String username) {
+        BloomFilter next = building;
+        BloomFilter current = filter;
+        if (next != null) {
+            next.add(username);
+        }
+        if (current != null) {
+            current.add(username);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.hoaxify.hoaxify.user;
+
+public interface UsernameLookup {
+
+    User findByUsername(String username);
+}
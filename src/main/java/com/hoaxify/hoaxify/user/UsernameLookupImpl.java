@@ -0,0 +1,24 @@
+package com.hoaxify.hoaxify.user;
+
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Resolves usernames through Hibernate's natural-id API so repeated lookups are served by the
+ * {@link User#USERNAME_CACHE} and {@link User#ENTITY_CACHE} regions instead of a query.
+ * Read-only transactional like the derived repository methods, so {@code unwrap} sees a live session.
+ */
+@Transactional(readOnly = true)
+class UsernameLookupImpl implements UsernameLookup {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public User findByUsername(String username) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).load(username);
+    }
+}
@@ -0,0 +1,22 @@
+package com.hoaxify.hoaxify.user.vm;
+
+import com.hoaxify.hoaxify.user.User;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+public class LoginVM extends UserVM {
+
+    private String token;
+
+    private long tokenExpiresAt;
+
+    public LoginVM(User user, String token, long tokenExpiresAt) {
+        super(user);
+        this.token = token;
+        this.tokenExpiresAt = tokenExpiresAt;
+    }
+}
@@ -1,9 +1,12 @@
 package com.hoaxify.hoaxify.user.vm;
 
+import com.hoaxify.hoaxify.file.ImageVariants;
 import com.hoaxify.hoaxify.user.User;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 @Data
 @NoArgsConstructor
 public class UserVM {
@@ -16,10 +19,13 @@ public class UserVM {
 
     private String image;
 
+    private Map<String, String> imageVariants;
+
     public UserVM(User user) {
         this.setId(user.getId());
         this.setUsername(user.getUsername());
         this.setDisplayName(user.getDisplayName());
         this.setImage(user.getImage());
+        this.setImageVariants(ImageVariants.of(user.getImage(), user.isImageVariantsReady()));
     }
 }
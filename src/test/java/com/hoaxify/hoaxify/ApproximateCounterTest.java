@@ -0,0 +1,59 @@
+package com.hoaxify.hoaxify;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.shared.ApproximateCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ApproximateCounterTest {
+
+    @Test
+    public void toPage_whenCountIsBelowRowsRead_pageStillHasNext() {
+        Page<Integer> page = ApproximateCounter.toPage(List.of(1, 2), PageRequest.of(1, 2), true, 2);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(page.isLast()).isFalse();
+        assertThat(page.getTotalPages()).isEqualTo(3);
+    }
+
+    @Test
+    public void toPage_whenCountIsAboveRowsRead_lastSliceIsLastPage() {
+        Page<Integer> page = ApproximateCounter.toPage(List.of(1), PageRequest.of(1, 2), false, 100);
+        assertThat(page.hasNext()).isFalse();
+        assertThat(page.isLast()).isTrue();
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    public void toPage_whenSliceHasNext_keepsApproximateTotalForDisplay() {
+        Page<Integer> page = new ApproximateCounter(new AppConfiguration())
+                .toPage(new SliceImpl<>(List.of(1, 2), PageRequest.of(0, 2), true), "key", () -> 50);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(page.getTotalElements()).isEqualTo(50);
+    }
+
+    @Test
+    public void get_whenCountIsStale_servesItAndRefreshesInBackground() throws InterruptedException {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setApproximateCountRefresh(Duration.ofMillis(1));
+        ApproximateCounter counter = new ApproximateCounter(appConfiguration);
+        AtomicLong rows = new AtomicLong(1);
+        assertThat(counter.get("key", rows::get)).isEqualTo(1);
+        rows.set(2);
+        Thread.sleep(5);
+
+        assertThat(counter.get("key", rows::get)).isEqualTo(1);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (counter.get("key", rows::get) != 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(counter.get("key", rows::get)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,273 @@
+package com.hoaxify.hoaxify;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.file.FileAttachment;
+import com.hoaxify.hoaxify.file.FileAttachmentRepository;
+import com.hoaxify.hoaxify.file.vm.AttachmentUploadVM;
+import com.hoaxify.hoaxify.file.vm.FileAttachmentVM;
+import com.hoaxify.hoaxify.hoax.Hoax;
+import com.hoaxify.hoaxify.hoax.HoaxRepository;
+import com.hoaxify.hoaxify.hoax.HoaxService;
+import com.hoaxify.hoaxify.hoax.vm.HoaxVM;
+import com.hoaxify.hoaxify.user.UserRepository;
+import com.hoaxify.hoaxify.user.UserService;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.support.BasicAuthenticationInterceptor;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class AttachmentControllerTest {
+
+    private static final String API_1_0_ATTACHMENTS = "/api/1.0/hoaxes/attachments";
+
+    @Autowired
+    TestRestTemplate testRestTemplate;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    HoaxRepository hoaxRepository;
+
+    @Autowired
+    HoaxService hoaxService;
+
+    @Autowired
+    FileAttachmentRepository fileAttachmentRepository;
+
+    @Autowired
+    AppConfiguration appConfiguration;
+
+    @BeforeEach
+    void init() throws IOException {
+        cleanup();
+        testRestTemplate.getRestTemplate().getInterceptors().clear();
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        hoaxRepository.deleteAll();
+        fileAttachmentRepository.deleteAll();
+        userRepository.deleteAll();
+        hoaxService.refreshFeedBuffer();
+        FileUtils.cleanDirectory(new File(appConfiguration.getFullAttachmentsPath()));
+    }
+
+    @Test
+    public void initUpload_whenUserIsUnauthorized_receiveUnauthorized() {
+        ResponseEntity<Object> response = initUpload(100, Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    public void initUpload_whenUserIsAuthorized_receiveEmptyUpload() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        ResponseEntity<FileAttachmentVM> response = initUpload(100, FileAttachmentVM.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getSize()).isEqualTo(100);
+        assertThat(response.getBody().getReceived()).isZero();
+        assertThat(response.getBody().isCompleted()).isFalse();
+    }
+
+    @Test
+    public void initUpload_whenSizeExceedsLimit_receivePayloadTooLarge() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        ResponseEntity<Object> response = initUpload(appConfiguration.getMaxAttachmentSize().toBytes() + 1, Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    public void putChunk_whenUploadIsResumedAfterInterruption_completedFileHasAllBytes() throws IOException {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        byte[] content = FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile());
+        long id = initUpload(content.length, FileAttachmentVM.class).getBody().getId();
+        int half = content.length / 2;
+        putChunk(id, 0, Arrays.copyOfRange(content, 0, half), FileAttachmentVM.class);
+
+        FileAttachmentVM status = testRestTemplate.getForObject(API_1_0_ATTACHMENTS + "/" + id, FileAttachmentVM.class);
+        assertThat(status.getReceived()).isEqualTo(half);
+
+        putChunk(id, status.getReceived(), Arrays.copyOfRange(content, half, content.length), FileAttachmentVM.class);
+        FileAttachmentVM completed = complete(id, FileAttachmentVM.class).getBody();
+
+        assertThat(completed.isCompleted()).isTrue();
+        assertThat(completed.getFileType()).isEqualTo("image/png");
+        File stored = new File(appConfiguration.getFullAttachmentsPath(), completed.getName());
+        assertThat(FileUtils.readFileToByteArray(stored)).isEqualTo(content);
+    }
+
+    @Test
+    public void putChunk_whenChunkLeavesGap_receiveBadRequest() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        long id = initUpload(100, FileAttachmentVM.class).getBody().getId();
+        ResponseEntity<Object> response = putChunk(id, 10, new byte[10], Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void putChunk_whenChunkEndsAfterDeclaredSize_receivePayloadTooLarge() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        long id = initUpload(10, FileAttachmentVM.class).getBody().getId();
+        ResponseEntity<Object> response = putChunk(id, 0, new byte[11], Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    public void putChunk_whenUploadBelongsToAnotherUser_receiveForbidden() {
+        userService.save(TestUtils.createValidUser("user1"));
+        userService.save(TestUtils.createValidUser("user2"));
+        authenticate("user1");
+        long id = initUpload(10, FileAttachmentVM.class).getBody().getId();
+        testRestTemplate.getRestTemplate().getInterceptors().clear();
+        authenticate("user2");
+        ResponseEntity<Object> response = putChunk(id, 0, new byte[10], Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    public void completeUpload_whenBytesAreMissing_receiveBadRequest() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        long id = initUpload(10, FileAttachmentVM.class).getBody().getId();
+        putChunk(id, 0, new byte[5], Object.class);
+        ResponseEntity<Object> response = complete(id, Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void getAttachment_whenUploadIsInProgress_receiveNotFound() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        String name = initUpload(10, FileAttachmentVM.class).getBody().getName();
+        ResponseEntity<Object> response = testRestTemplate.getForEntity(
+                "/images/" + appConfiguration.getAttachmentsFolder() + "/" + name + ".part", Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void getAttachment_whenContentIsHtml_servedAsDownloadWithNosniff() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        byte[] html = "<html><body><script>alert(document.cookie)</script></body></html>".getBytes(StandardCharsets.UTF_8);
+        String name = complete(uploadCompleted(html), FileAttachmentVM.class).getBody().getName();
+        ResponseEntity<byte[]> response = testRestTemplate.getForEntity(
+                "/images/" + appConfiguration.getAttachmentsFolder() + "/" + name, byte[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentDisposition().isAttachment()).isTrue();
+        assertThat(response.getHeaders().getFirst("X-Content-Type-Options")).isEqualTo("nosniff");
+    }
+
+    @Test
+    public void getAttachment_whenContentIsPng_servedInline() throws IOException {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        byte[] png = FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile());
+        String name = complete(uploadCompleted(png), FileAttachmentVM.class).getBody().getName();
+        ResponseEntity<byte[]> response = testRestTemplate.getForEntity(
+                "/images/" + appConfiguration.getAttachmentsFolder() + "/" + name, byte[].class);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.IMAGE_PNG);
+        assertThat(response.getHeaders().getContentDisposition().isAttachment()).isFalse();
+        assertThat(response.getHeaders().getFirst("X-Content-Type-Options")).isEqualTo("nosniff");
+    }
+
+    @Test
+    public void postHoax_whenAttachmentIsCompleted_hoaxIsReturnedWithAttachment() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        long id = uploadCompleted(new byte[]{1, 2, 3});
+        Hoax hoax = TestUtils.createValidHoax();
+        FileAttachment attachment = new FileAttachment();
+        attachment.setId(id);
+        hoax.setAttachment(attachment);
+        ResponseEntity<HoaxVM> response = testRestTemplate.postForEntity("/api/1.0/hoaxes", hoax, HoaxVM.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        assertThat(response.getBody().getAttachment().getId()).isEqualTo(id);
+        assertThat(response.getBody().getAttachment().isCompleted()).isTrue();
+    }
+
+    @Test
+    public void postHoax_whenAttachmentIsAlreadyPosted_receiveBadRequest() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        long id = uploadCompleted(new byte[]{1, 2, 3});
+        Hoax hoax = TestUtils.createValidHoax();
+        FileAttachment attachment = new FileAttachment();
+        attachment.setId(id);
+        hoax.setAttachment(attachment);
+        testRestTemplate.postForEntity("/api/1.0/hoaxes", hoax, Object.class);
+        ResponseEntity<Object> response = testRestTemplate.postForEntity("/api/1.0/hoaxes", hoax, Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void postHoax_whenAttachmentIsStillUploading_receiveBadRequest() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        long id = initUpload(10, FileAttachmentVM.class).getBody().getId();
+        Hoax hoax = TestUtils.createValidHoax();
+        FileAttachment attachment = new FileAttachment();
+        attachment.setId(id);
+        hoax.setAttachment(attachment);
+        ResponseEntity<Object> response = testRestTemplate.postForEntity("/api/1.0/hoaxes", hoax, Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private long uploadCompleted(byte[] content) {
+        long id = initUpload(content.length, FileAttachmentVM.class).getBody().getId();
+        putChunk(id, 0, content, Object.class);
+        complete(id, Object.class);
+        return id;
+    }
+
+    private <T> ResponseEntity<T> initUpload(long size, Class<T> responseType) {
+        AttachmentUploadVM upload = new AttachmentUploadVM();
+        upload.setSize(size);
+        return testRestTemplate.postForEntity(API_1_0_ATTACHMENTS, upload, responseType);
+    }
+
+    private <T> ResponseEntity<T> putChunk(long id, long offset, byte[] chunk, Class<T> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        return testRestTemplate.exchange(API_1_0_ATTACHMENTS + "/" + id + "?offset=" + offset, HttpMethod.PUT,
+                new HttpEntity<>(chunk, headers), responseType);
+    }
+
+    private <T> ResponseEntity<T> complete(long id, Class<T> responseType) {
+        return testRestTemplate.postForEntity(API_1_0_ATTACHMENTS + "/" + id + "/complete", null, responseType);
+    }
+
+    private void authenticate(String username) {
+        testRestTemplate.getRestTemplate()
+                .getInterceptors().add(new BasicAuthenticationInterceptor(username, "P4ssword"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.hoaxify.hoaxify;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.file.FileService;
+import org.apache.tika.Tika;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old validation path, decoding the whole Base64 upload and asking Tika, with the signature check on a
+ * decoded prefix. Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.hoaxify.hoaxify.ContentTypeDetectionBenchmark}, or from the IDE; add {@code -prof gc} through
+ * {@link OptionsBuilder#addProfiler} to see the allocation per upload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentTypeDetectionBenchmark {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    @Param({"16384", "262144", "4194304"})
+    int imageSize;
+
+    String base64Image;
+
+    Tika tika;
+
+    FileService fileService;
+
+    @Setup
+    public void setup() {
+        byte[] image = new byte[imageSize];
+        new Random(imageSize).nextBytes(image);
+        System.arraycopy(PNG_SIGNATURE, 0, image, 0, PNG_SIGNATURE.length);
+        base64Image = Base64.getEncoder().encodeToString(image);
+        tika = new Tika();
+        AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setUploadPath("uploads-benchmark");
+        fileService = new FileService(appConfiguration);
+    }
+
+    @Benchmark
+    public String tikaOnWholeImage() {
+        return tika.detect(Base64.getDecoder().decode(base64Image));
+    }
+
+    @Benchmark
+    public String signaturesOnPrefix() {
+        return fileService.detectTypeOfBase64(base64Image);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ContentTypeDetectionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,40 @@
+package com.hoaxify.hoaxify;
+
+import com.hoaxify.hoaxify.shared.ExpiringCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExpiringCacheTest {
+
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, Duration.ofMinutes(1));
+
+    @Test
+    public void get_whenValueWasLoadedBefore_returnsCachedValue() {
+        cache.get("user1", key -> "first");
+        assertThat(cache.get("user1", key -> "second")).isEqualTo("first");
+    }
+
+    @Test
+    public void get_whenInvalidatedWhileLoading_doesNotCacheLoadedValue() {
+        String loaded = cache.get("user1", key -> {
+            cache.invalidate(key);
+            return "stale";
+        });
+
+        assertThat(loaded).isEqualTo("stale");
+        assertThat(cache.get("user1", key -> "fresh")).isEqualTo("fresh");
+    }
+
+    @Test
+    public void get_whenAllInvalidatedWhileLoading_doesNotCacheLoadedValue() {
+        cache.get("user1", key -> {
+            cache.invalidateAll();
+            return "stale";
+        });
+
+        assertThat(cache.get("user1", key -> "fresh")).isEqualTo("fresh");
+    }
+}
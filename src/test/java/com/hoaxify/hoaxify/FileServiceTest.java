@@ -1,18 +1,35 @@
 package com.hoaxify.hoaxify;
 
 import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.file.FileLayoutMigration;
 import com.hoaxify.hoaxify.file.FileService;
+import com.hoaxify.hoaxify.file.ImageCache;
+import com.hoaxify.hoaxify.file.ImageTooLargeException;
+import com.hoaxify.hoaxify.file.PackedImageStore;
+import com.hoaxify.hoaxify.file.UnsupportedImageTypeException;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.unit.DataSize;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ActiveProfiles("test")
 public class FileServiceTest {
@@ -21,12 +38,16 @@ public class FileServiceTest {
 
     AppConfiguration appConfiguration;
 
+    PackedImageStore packedImageStore;
+
     @BeforeEach
     public void init() {
         appConfiguration = new AppConfiguration();
         appConfiguration.setUploadPath("uploads-test");
+        appConfiguration.setPackedCompactionInterval(Duration.ZERO);
 
-        fileService = new FileService(appConfiguration);
+        packedImageStore = new PackedImageStore(appConfiguration);
+        fileService = new FileService(appConfiguration, new ImageCache(appConfiguration), packedImageStore);
 
         new File(appConfiguration.getUploadPath()).mkdir();
         new File(appConfiguration.getFullProfileImagesPath()).mkdir();
@@ -35,6 +56,8 @@ public class FileServiceTest {
 
     @AfterEach
     public void cleanup() throws IOException {
+        packedImageStore.close();
+        FileUtils.deleteDirectory(new File(appConfiguration.getUploadPath(), appConfiguration.getPackedImagesFolder()));
         FileUtils.cleanDirectory(new File(appConfiguration.getFullProfileImagesPath()));
         FileUtils.cleanDirectory(new File(appConfiguration.getFullAttachmentsPath()));
     }
@@ -46,4 +69,192 @@ public class FileServiceTest {
         String fileType = fileService.detectType(fileArr);
         assertThat(fileType).isEqualToIgnoringCase("image/png");
     }
+
+    @Test
+    public void detectType_whenJpgFileProvided_returnsImageJpeg() throws IOException {
+        byte[] fileArr = FileUtils.readFileToByteArray(new ClassPathResource("test-jpg.jpg").getFile());
+        assertThat(fileService.detectType(fileArr)).isEqualTo("image/jpeg");
+    }
+
+    @Test
+    public void detectType_whenGifFileProvided_returnsImageGif() throws IOException {
+        byte[] fileArr = FileUtils.readFileToByteArray(new ClassPathResource("test-gif.gif").getFile());
+        assertThat(fileService.detectType(fileArr)).isEqualTo("image/gif");
+    }
+
+    @Test
+    public void detectType_whenWebpHeaderProvided_returnsImageWebp() {
+        byte[] header = "RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.US_ASCII);
+        assertThat(fileService.detectType(header)).isEqualTo("image/webp");
+    }
+
+    @Test
+    public void detectType_whenTextFileProvided_fallsBackToTika() throws IOException {
+        byte[] fileArr = FileUtils.readFileToByteArray(new ClassPathResource("test-txt.txt").getFile());
+        assertThat(fileService.detectType(fileArr)).isEqualTo("text/plain");
+    }
+
+    @Test
+    public void detectTypeOfBase64_whenPngFileProvided_returnsImagePng() throws IOException {
+        byte[] fileArr = FileUtils.readFileToByteArray(new ClassPathResource("test-png.png").getFile());
+        String fileType = fileService.detectTypeOfBase64(Base64.getEncoder().encodeToString(fileArr));
+        assertThat(fileType).isEqualToIgnoringCase("image/png");
+    }
+
+    @Test
+    public void saveProfileImage_whenBase64PngProvided_writesDecodedBytes() throws IOException {
+        byte[] fileArr = FileUtils.readFileToByteArray(new ClassPathResource("test-png.png").getFile());
+        String imageName = fileService.saveProfileImage(Base64.getEncoder().encodeToString(fileArr));
+        File saved = new File(appConfiguration.getFullProfileImagesPath() + "/" + imageName);
+        assertThat(FileUtils.readFileToByteArray(saved)).isEqualTo(fileArr);
+        assertThat(new File(appConfiguration.getFullProfileImagesPath()).list()).containsExactly(imageName);
+    }
+
+    @Test
+    public void saveProfileImage_whenTextProvided_throwsAndLeavesNoFile() {
+        String base64 = Base64.getEncoder().encodeToString("plain text".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> fileService.saveProfileImage(base64)).isInstanceOf(UnsupportedImageTypeException.class);
+        assertThat(new File(appConfiguration.getFullProfileImagesPath()).list()).isEmpty();
+    }
+
+    @Test
+    public void saveProfileImage_whenStreamExceedsMaxImageSize_throwsAndLeavesNoFile() throws IOException {
+        byte[] fileArr = FileUtils.readFileToByteArray(new ClassPathResource("test-png.png").getFile());
+        appConfiguration.setMaxImageSize(DataSize.ofBytes(fileArr.length - 1));
+        assertThatThrownBy(() -> fileService.saveProfileImage(new ByteArrayInputStream(fileArr)))
+                .isInstanceOf(ImageTooLargeException.class);
+        assertThat(new File(appConfiguration.getFullProfileImagesPath()).list()).isEmpty();
+    }
+
+    @Test
+    public void saveProfileImage_inContentAddressedMode_identicalImagesShareOneFile() throws IOException {
+        appConfiguration.setContentAddressedImages(true);
+        byte[] fileArr = FileUtils.readFileToByteArray(new ClassPathResource("test-png.png").getFile());
+        String first = fileService.saveProfileImage(new ByteArrayInputStream(fileArr));
+        String second = fileService.saveProfileImage(new ByteArrayInputStream(fileArr));
+        assertThat(first).isEqualTo(second).hasSize(64);
+        assertThat(new File(appConfiguration.getFullProfileImagesPath()).list()).containsExactly(first);
+    }
+
+    @Test
+    public void saveProfileImage_inShardedLayout_storesUnderHashPrefixFolders() throws IOException {
+        appConfiguration.setShardedUploads(true);
+        byte[] fileArr = FileUtils.readFileToByteArray(new ClassPathResource("test-png.png").getFile());
+        String imageName = fileService.saveProfileImage(new ByteArrayInputStream(fileArr));
+        Path expected = Paths.get(appConfiguration.getFullProfileImagesPath(),
+                imageName.substring(0, 2), imageName.substring(2, 4), imageName);
+        assertThat(expected).exists();
+        assertThat(fileService.findProfileImage(imageName)).isEqualTo(expected);
+    }
+
+    @Test
+    public void findProfileImage_inShardedLayout_findsFlatFileNotMigratedYet() throws IOException {
+        File flat = new File(appConfiguration.getFullProfileImagesPath() + "/abcdef");
+        FileUtils.copyFile(new ClassPathResource("test-png.png").getFile(), flat);
+        appConfiguration.setShardedUploads(true);
+        assertThat(fileService.findProfileImage("abcdef")).isEqualTo(flat.toPath());
+    }
+
+    @Test
+    public void migrateAll_toShardedLayout_movesFlatFilesAndBack() throws IOException {
+        File flat = new File(appConfiguration.getFullAttachmentsPath() + "/abcdef");
+        FileUtils.copyFile(new ClassPathResource("test-png.png").getFile(), flat);
+        FileLayoutMigration migration = new FileLayoutMigration(appConfiguration);
+        appConfiguration.setShardedUploads(true);
+
+        assertThat(migration.migrateAll()).isEqualTo(1);
+        assertThat(flat).doesNotExist();
+        assertThat(Paths.get(appConfiguration.getFullAttachmentsPath(), "ab", "cd", "abcdef")).exists();
+
+        appConfiguration.setShardedUploads(false);
+        assertThat(migration.migrateAll()).isEqualTo(1);
+        assertThat(flat).exists();
+    }
+
+    @Test
+    public void migrateAll_whenAttachmentUploadIsInProgress_leavesPartWhereItsUploadFindsIt() throws IOException {
+        Path part = fileService.attachmentPartPath("abcdef");
+        Files.createDirectories(part.getParent());
+        Files.createFile(part);
+        appConfiguration.setShardedUploads(true);
+
+        assertThat(new FileLayoutMigration(appConfiguration).migrateAll()).isZero();
+        assertThat(part).exists();
+        assertThat(fileService.attachmentPartPath("abcdef")).isEqualTo(part);
+    }
+
+    @Test
+    public void saveProfileImage_inPackedMode_storesBytesInSegmentNotAsFile() throws IOException {
+        appConfiguration.setPackedImages(true);
+        byte[] fileArr = FileUtils.readFileToByteArray(new ClassPathResource("test-png.png").getFile());
+        String imageName = fileService.saveProfileImage(new ByteArrayInputStream(fileArr));
+
+        assertThat(new File(appConfiguration.getFullProfileImagesPath()).list()).isEmpty();
+        assertThat(toArray(fileService.findPackedUpload(appConfiguration.getProfileImagesFolder(), imageName))).isEqualTo(fileArr);
+        try (InputStream stored = fileService.openProfileImage(imageName)) {
+            assertThat(stored.readAllBytes()).isEqualTo(fileArr);
+        }
+    }
+
+    @Test
+    public void deleteProfileImage_inPackedMode_imageIsGoneAfterReopen() throws IOException {
+        appConfiguration.setPackedImages(true);
+        byte[] fileArr = FileUtils.readFileToByteArray(new ClassPathResource("test-png.png").getFile());
+        String kept = fileService.saveProfileImage(new ByteArrayInputStream(fileArr));
+        String deleted = fileService.saveProfileImage(new ByteArrayInputStream(fileArr));
+        fileService.deleteProfileImage(deleted);
+
+        packedImageStore.close();
+
+        assertThat(packedImageStore.get(deleted)).isNull();
+        assertThat(toArray(packedImageStore.get(kept))).isEqualTo(fileArr);
+    }
+
+    @Test
+    public void compact_whenSealedSegmentIsMostlyDead_removesItAndKeepsLiveImages() throws IOException {
+        appConfiguration.setPackedImages(true);
+        appConfiguration.setPackedSegmentSize(DataSize.ofBytes(1));
+        byte[] fileArr = FileUtils.readFileToByteArray(new ClassPathResource("test-png.png").getFile());
+        String deleted = fileService.saveProfileImage(new ByteArrayInputStream(fileArr));
+        String kept = fileService.saveProfileImage(new ByteArrayInputStream(fileArr));
+        fileService.deleteProfileImage(deleted);
+        File folder = new File(appConfiguration.getUploadPath(), appConfiguration.getPackedImagesFolder());
+        int segmentsBefore = folder.list().length;
+
+        packedImageStore.compact();
+
+        assertThat(folder.list().length).isLessThan(segmentsBefore);
+        packedImageStore.close();
+        assertThat(packedImageStore.get(deleted)).isNull();
+        assertThat(toArray(packedImageStore.get(kept))).isEqualTo(fileArr);
+    }
+
+    @Test
+    public void get_whenRecordsWereAppendedAfterEarlierReads_eachReadReturnsItsOwnBytes() throws IOException {
+        Path temp = Files.createTempFile("packed", ".tmp");
+        try {
+            for (int i = 0; i < 50; i++) {
+                Files.write(temp, content(i));
+                packedImageStore.put("image" + i, temp);
+                assertThat(toArray(packedImageStore.get("image" + i))).isEqualTo(content(i));
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        for (int i = 0; i < 50; i++) {
+            assertThat(toArray(packedImageStore.get("image" + i))).isEqualTo(content(i));
+        }
+    }
+
+    private static byte[] content(int i) {
+        byte[] content = new byte[100 + i * 37];
+        Arrays.fill(content, (byte) i);
+        return content;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] content = new byte[buffer.remaining()];
+        buffer.get(content);
+        return content;
+    }
 }
@@ -1,38 +1,65 @@
 package com.hoaxify.hoaxify;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
 import com.hoaxify.hoaxify.error.ApiError;
 import com.hoaxify.hoaxify.hoax.Hoax;
 import com.hoaxify.hoaxify.hoax.HoaxRepository;
 import com.hoaxify.hoaxify.hoax.HoaxService;
+import com.hoaxify.hoaxify.hoax.vm.HoaxCatchUpVM;
+import com.hoaxify.hoaxify.hoax.vm.HoaxImportVM;
 import com.hoaxify.hoaxify.hoax.vm.HoaxVM;
+import com.hoaxify.hoaxify.shared.CursorPage;
 import com.hoaxify.hoaxify.user.User;
 import com.hoaxify.hoaxify.user.UserRepository;
 import com.hoaxify.hoaxify.user.UserService;
+import com.hoaxify.hoaxify.user.vm.UserUpdateVM;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.support.BasicAuthenticationInterceptor;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceUnit;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
+@AutoConfigureMockMvc
 public class HoaxControllerTest {
 
     private static final String API_1_0_HOAXES = "/api/1.0/hoaxes";
@@ -48,11 +75,18 @@ public class HoaxControllerTest {
     HoaxService hoaxService;
     @PersistenceUnit
     EntityManagerFactory entityManagerFactory;
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    AppConfiguration appConfiguration;
+    @Autowired
+    ObjectMapper objectMapper;
 
     @BeforeEach
     void cleanup() {
         hoaxRepository.deleteAll();
         userRepository.deleteAll();
+        hoaxService.refreshFeedBuffer();
         testRestTemplate.getRestTemplate().getInterceptors().clear();
     }
 
@@ -65,6 +99,173 @@ public class HoaxControllerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    public void postHoax_inGroupCommitMode_concurrentHoaxesAreSavedWithTheirOwnIds() throws Exception {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        appConfiguration.setHoaxGroupCommit(true);
+        ExecutorService clients = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<ResponseEntity<HoaxVM>>> responses = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                responses.add(clients.submit(() -> postHoax(TestUtils.createValidHoax(), HoaxVM.class)));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<ResponseEntity<HoaxVM>> response : responses) {
+                assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.OK);
+                ids.add(response.get().getBody().getId());
+            }
+            assertThat(ids).hasSize(20);
+            assertThat(hoaxRepository.count()).isEqualTo(20);
+        } finally {
+            appConfiguration.setHoaxGroupCommit(false);
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    public void submitHoax_inGroupCommitModeWhenOneHoaxOfBatchFails_otherHoaxesAreSaved() throws Exception {
+        User user1 = userService.save(TestUtils.createValidUser("user1"));
+        User missing = TestUtils.createValidUser("missing");
+        missing.setId(user1.getId() + 1000);
+        appConfiguration.setHoaxGroupCommit(true);
+        try {
+            CompletableFuture<Hoax> failed = hoaxService.submit(missing, TestUtils.createValidHoax());
+            List<CompletableFuture<Hoax>> saved = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                saved.add(hoaxService.submit(user1, TestUtils.createValidHoax()));
+            }
+
+            assertThat(failed).failsWithin(Duration.ofSeconds(5));
+            for (CompletableFuture<Hoax> hoax : saved) {
+                assertThat(hoax.get(5, TimeUnit.SECONDS).getId()).isPositive();
+            }
+        } finally {
+            appConfiguration.setHoaxGroupCommit(false);
+        }
+        assertThat(hoaxRepository.countByUserId(user1.getId())).isEqualTo(5);
+    }
+
+    @Test
+    public void exportHoaxes_whenHoaxesExist_receiveOneHoaxVMPerLineOldestFirst() throws Exception {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        IntStream.rangeClosed(1, 3).forEach(i -> hoaxService.save(user, TestUtils.createValidHoax()));
+        ResponseEntity<String> response = testRestTemplate.getForEntity(API_1_0_HOAXES + "/export", String.class);
+        assertThat(response.getHeaders().getContentType().toString()).isEqualTo("application/x-ndjson");
+        List<HoaxVM> exported = new ArrayList<>();
+        for (String line : response.getBody().split("\n")) {
+            exported.add(objectMapper.readValue(line, HoaxVM.class));
+        }
+        assertThat(exported).extracting(HoaxVM::getId).isSorted().hasSize(3);
+        assertThat(exported).extracting(hoax -> hoax.getUser().getUsername()).containsOnly("user1");
+    }
+
+    @Test
+    public void importHoaxes_whenUserIsUnauthorized_receiveUnauthorized() {
+        ResponseEntity<Object> response = importHoaxes("{}", Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    public void importHoaxes_whenImportIsDisabled_receiveForbidden() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        ResponseEntity<Object> response = importHoaxes("{}", Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    public void importHoaxes_whenOwnExportIsImported_hoaxesAreSavedForImportingUser() throws Exception {
+        User user1 = userService.save(TestUtils.createValidUser("user1"));
+        IntStream.rangeClosed(1, 3).forEach(i -> hoaxService.save(user1, TestUtils.createValidHoax()));
+        String exported = testRestTemplate.getForObject(API_1_0_HOAXES + "/export", String.class);
+        authenticate("user1");
+        appConfiguration.setHoaxImportEnabled(true);
+        try {
+            ResponseEntity<HoaxImportVM> response = importHoaxes(exported, HoaxImportVM.class);
+            assertThat(response.getBody().getImported()).isEqualTo(3);
+        } finally {
+            appConfiguration.setHoaxImportEnabled(false);
+        }
+        assertThat(hoaxRepository.countByUserId(user1.getId())).isEqualTo(6);
+    }
+
+    @Test
+    public void importHoaxes_whenNewestHoaxesWereBuffered_newestPageShowsImportedAndLaterHoaxes() {
+        User user1 = userService.save(TestUtils.createValidUser("user1"));
+        hoaxService.save(user1, TestUtils.createValidHoax());
+        authenticate("user1");
+        String line = "{\"content\":\"imported content of user1\",\"user\":{\"username\":\"user1\"}}\n";
+        appConfiguration.setHoaxImportEnabled(true);
+        try {
+            importHoaxes(line, HoaxImportVM.class);
+        } finally {
+            appConfiguration.setHoaxImportEnabled(false);
+        }
+        Hoax later = hoaxService.save(user1, TestUtils.createValidHoax());
+
+        ResponseEntity<TestPage<HoaxVM>> response = testRestTemplate.exchange(API_1_0_HOAXES + "?sort=id,desc",
+                HttpMethod.GET, null, new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody().getContent()).extracting(HoaxVM::getContent)
+                .contains("imported content of user1");
+        assertThat(response.getBody().getContent().get(0).getId()).isEqualTo(later.getId());
+        assertThat(response.getBody().getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    public void importHoaxes_whenImportCompleted_newestPageIsServedFromFeedBufferAgain() {
+        User user1 = userService.save(TestUtils.createValidUser("user1"));
+        hoaxService.save(user1, TestUtils.createValidHoax());
+        authenticate("user1");
+        String line = "{\"content\":\"imported content of user1\",\"user\":{\"username\":\"user1\"}}\n";
+        appConfiguration.setHoaxImportEnabled(true);
+        try {
+            importHoaxes(line, HoaxImportVM.class);
+        } finally {
+            appConfiguration.setHoaxImportEnabled(false);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ResponseEntity<TestPage<HoaxVM>> response = testRestTemplate.exchange(API_1_0_HOAXES + "?sort=id,desc&totals=none",
+                HttpMethod.GET, null, new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody().getContent()).extracting(HoaxVM::getContent)
+                .contains("imported content of user1");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    public void importHoaxes_whenLineBelongsToAnotherUser_receiveForbidden() {
+        userService.save(TestUtils.createValidUser("user1"));
+        User user2 = userService.save(TestUtils.createValidUser("user2"));
+        authenticate("user1");
+        String forUser2 = "{\"content\":\"imported content of user2\",\"date\":1000,\"user\":{\"username\":\"user2\"}}\n";
+        appConfiguration.setHoaxImportEnabled(true);
+        try {
+            ResponseEntity<Object> response = importHoaxes(forUser2, Object.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        } finally {
+            appConfiguration.setHoaxImportEnabled(false);
+        }
+        assertThat(hoaxRepository.countByUserId(user2.getId())).isZero();
+    }
+
+    @Test
+    public void importHoaxes_whenLineIsInvalid_receiveBadRequestNamingTheLine() {
+        userService.save(TestUtils.createValidUser("user1"));
+        authenticate("user1");
+        String lines = "{\"content\":\"valid content to import\",\"user\":{\"username\":\"user1\"}}\n"
+                + "{\"content\":\"short\",\"user\":{\"username\":\"user1\"}}\n";
+        appConfiguration.setHoaxImportEnabled(true);
+        try {
+            ResponseEntity<ApiError> response = importHoaxes(lines, ApiError.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody().getMessage()).startsWith("Line 2:");
+        } finally {
+            appConfiguration.setHoaxImportEnabled(false);
+        }
+    }
+
     @Test
     public void postHoax_whenHoaxIsValidAndUserIsUnauthorized_receiveUnauthorized() {
         Hoax hoax = TestUtils.createValidHoax();
@@ -207,6 +408,90 @@ public class HoaxControllerTest {
         assertThat(storedHoax.getUser().getUsername()).isEqualTo("user1");
     }
 
+    @Test
+    public void getHoaxes_whenTotalsAreNotRequested_receiveSliceWithoutTotals() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        IntStream.rangeClosed(1, 3).forEach(i -> hoaxService.save(user, TestUtils.createValidHoax()));
+
+        ResponseEntity<Map<String, Object>> response = testRestTemplate.exchange(API_1_0_HOAXES + "?totals=none&size=2",
+                HttpMethod.GET, null, new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody()).doesNotContainKeys("totalElements", "totalPages");
+        assertThat(response.getBody().get("next")).isEqualTo(true);
+        assertThat((List<?>) response.getBody().get("content")).hasSize(2);
+    }
+
+    @Test
+    public void getHoaxesOfUser_whenApproximateTotalsAreRequested_receivePageWithTotals() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        IntStream.rangeClosed(1, 3).forEach(i -> hoaxService.save(user, TestUtils.createValidHoax()));
+
+        ResponseEntity<TestPage<HoaxVM>> response = testRestTemplate.exchange("/api/1.0/users/user1/hoaxes?totals=approximate",
+                HttpMethod.GET, null, new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody().getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    public void getHoaxes_whenHoaxesHaveDifferentAuthors_loadPageWithSingleStatement() {
+        IntStream.rangeClosed(1, 3).forEach(i -> {
+            User user = userService.save(TestUtils.createValidUser("user" + i));
+            hoaxService.save(user, TestUtils.createValidHoax());
+        });
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ResponseEntity<TestPage<HoaxVM>> response = getHoaxes(new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody().getContent()).extracting(hoax -> hoax.getUser().getUsername())
+                .containsExactlyInAnyOrder("user1", "user2", "user3");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getOldHoaxes_whenHoaxesHaveDifferentAuthors_loadSliceWithSingleStatement() {
+        List<Hoax> hoaxes = IntStream.rangeClosed(1, 4).mapToObj(i -> {
+            User user = userService.save(TestUtils.createValidUser("user" + i));
+            return hoaxService.save(user, TestUtils.createValidHoax());
+        }).collect(Collectors.toList());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        String path = API_1_0_HOAXES + "/" + hoaxes.get(3).getId() + "?direction=before&sort=id,desc&totals=none";
+        ResponseEntity<TestPage<HoaxVM>> response = testRestTemplate.exchange(path, HttpMethod.GET, null, new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody().getContent()).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getOldHoaxes_whenAuthorsAreNotCached_loadSliceWithSingleStatement() {
+        List<Hoax> hoaxes = IntStream.rangeClosed(1, 4).mapToObj(i -> {
+            User user = userService.save(TestUtils.createValidUser("user" + i));
+            return hoaxService.save(user, TestUtils.createValidHoax());
+        }).collect(Collectors.toList());
+        entityManagerFactory.getCache().evictAll();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        String path = API_1_0_HOAXES + "/" + hoaxes.get(3).getId() + "?direction=before&sort=id,desc&totals=none";
+        ResponseEntity<TestPage<HoaxVM>> response = testRestTemplate.exchange(path, HttpMethod.GET, null, new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody().getContent()).extracting(hoax -> hoax.getUser().getUsername())
+                .containsExactly("user3", "user2", "user1");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getOldHoaxesOfUser_whenUsernameWasResolvedBefore_loadSliceWithSingleStatement() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        IntStream.rangeClosed(1, 3).forEach(i -> hoaxService.save(user, TestUtils.createValidHoax()));
+        Hoax fourth = hoaxService.save(user, TestUtils.createValidHoax());
+        String path = "/api/1.0/users/user1/hoaxes/" + fourth.getId() + "?direction=before&sort=id,desc&totals=none";
+        testRestTemplate.exchange(path, HttpMethod.GET, null, Object.class);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ResponseEntity<TestPage<HoaxVM>> response = testRestTemplate.exchange(path, HttpMethod.GET, null, new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody().getContent()).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
     @Test
     public void postHoax_whenHoaxIsValidAndUserIsAuthorized_receiveHoaxVM() {
         userService.save(TestUtils.createValidUser("user1"));
@@ -385,6 +670,76 @@ public class HoaxControllerTest {
         assertThat(response.getBody().get(0).getDate()).isGreaterThan(0);
     }
 
+    @Test
+    public void getHoaxes_whenFirstPageIsRequestedNewestFirst_receiveNewestHoaxesWithTotal() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        IntStream.rangeClosed(1, 5).forEach(i -> hoaxService.save(user, TestUtils.createValidHoax()));
+        Hoax newest = hoaxService.save(user, TestUtils.createValidHoax());
+
+        ResponseEntity<TestPage<HoaxVM>> response = testRestTemplate.exchange(API_1_0_HOAXES + "?sort=id,desc&size=3",
+                HttpMethod.GET, null, new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody().getContent().get(0).getId()).isEqualTo(newest.getId());
+        assertThat(response.getBody().getContent().size()).isEqualTo(3);
+        assertThat(response.getBody().getTotalElements()).isEqualTo(6);
+        assertThat(response.getBody().isNext()).isTrue();
+    }
+
+    @Test
+    public void getNewHoaxes_whenAuthorUpdatedDisplayName_receiveHoaxVMWithUpdatedDisplayName() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        Hoax first = hoaxService.save(user, TestUtils.createValidHoax());
+        hoaxService.save(user, TestUtils.createValidHoax());
+        authenticate("user1");
+        UserUpdateVM userUpdate = new UserUpdateVM();
+        userUpdate.setDisplayName("updated-display");
+        testRestTemplate.exchange("/api/1.0/users/" + user.getId(), HttpMethod.PUT, new HttpEntity<>(userUpdate), Object.class);
+
+        ResponseEntity<List<HoaxVM>> response = getNewHoaxes(first.getId(), new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody().get(0).getUser().getDisplayName()).isEqualTo("updated-display");
+    }
+
+    @Test
+    public void getNewHoaxesBounded_whenMoreHoaxesThanPageSize_receiveOldestPageTruncated() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        Hoax first = hoaxService.save(user, TestUtils.createValidHoax());
+        List<Hoax> newer = IntStream.rangeClosed(1, 5).mapToObj(i -> hoaxService.save(user, TestUtils.createValidHoax()))
+                .collect(Collectors.toList());
+
+        String path = API_1_0_HOAXES + "/" + first.getId() + "?direction=after&bounded=true&size=3";
+        ResponseEntity<HoaxCatchUpVM> response = testRestTemplate.getForEntity(path, HoaxCatchUpVM.class);
+        assertThat(response.getBody().isTruncated()).isTrue();
+        assertThat(response.getBody().getContent()).extracting(HoaxVM::getId)
+                .containsExactly(newer.get(2).getId(), newer.get(1).getId(), newer.get(0).getId());
+    }
+
+    @Test
+    public void getNewHoaxesBounded_whenNextCursorIsFollowed_receiveRemainingHoaxesNotTruncated() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        Hoax first = hoaxService.save(user, TestUtils.createValidHoax());
+        IntStream.rangeClosed(1, 5).forEach(i -> hoaxService.save(user, TestUtils.createValidHoax()));
+
+        String path = API_1_0_HOAXES + "/" + first.getId() + "?direction=after&bounded=true&size=3";
+        String cursor = testRestTemplate.getForEntity(path, HoaxCatchUpVM.class).getBody().getNextCursor();
+        ResponseEntity<HoaxCatchUpVM> response = testRestTemplate.getForEntity(path + "&cursor=" + cursor, HoaxCatchUpVM.class);
+        assertThat(response.getBody().isTruncated()).isFalse();
+        assertThat(response.getBody().getContent()).hasSize(2);
+    }
+
+    @Test
+    public void getNewHoaxesOfUserBounded_whenHoaxesAreOlderThanFeedBuffer_receiveOldestPageOfUserTruncated() {
+        User user1 = userService.save(TestUtils.createValidUser("user1"));
+        User user2 = userService.save(TestUtils.createValidUser("user2"));
+        Hoax oldest = hoaxService.save(user1, TestUtils.createValidHoax());
+        IntStream.rangeClosed(1, 4).forEach(i -> hoaxService.save(user2, TestUtils.createValidHoax()));
+        IntStream.rangeClosed(1, 6).forEach(i -> hoaxService.save(user1, TestUtils.createValidHoax()));
+
+        String path = "/api/1.0/users/user1/hoaxes/0?direction=after&bounded=true&size=2";
+        ResponseEntity<HoaxCatchUpVM> response = testRestTemplate.getForEntity(path, HoaxCatchUpVM.class);
+        assertThat(response.getBody().isTruncated()).isTrue();
+        assertThat(response.getBody().getContent()).hasSize(2);
+        assertThat(response.getBody().getContent().get(1).getId()).isEqualTo(oldest.getId());
+    }
+
     @Test
     public void getNewHoaxesOfUser_whenUserExistThereAreNoHoaxes_receiveOk() {
         userService.save(TestUtils.createValidUser("user1"));
@@ -466,6 +821,101 @@ public class HoaxControllerTest {
         assertThat(response.getBody().get("count")).isEqualTo(1);
     }
 
+    @Test
+    public void getHoaxesByCursor_whenThereAreHoaxes_receiveFirstSliceWithNextCursor() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        IntStream.rangeClosed(1, 5).forEach(i -> hoaxService.save(user, TestUtils.createValidHoax()));
+
+        ResponseEntity<CursorPage<HoaxVM>> response = getHoaxesByCursor(API_1_0_HOAXES, "", 3, new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody().getContent().size()).isEqualTo(3);
+        assertThat(response.getBody().isNext()).isTrue();
+        assertThat(response.getBody().getNextCursor()).isNotNull();
+    }
+
+    @Test
+    public void getHoaxesByCursor_whenNextCursorIsProvided_receiveRemainingHoaxesInDescendingOrder() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        IntStream.rangeClosed(1, 5).forEach(i -> hoaxService.save(user, TestUtils.createValidHoax()));
+
+        String cursor = getHoaxesByCursor(API_1_0_HOAXES, "", 3, new ParameterizedTypeReference<CursorPage<HoaxVM>>(){})
+                .getBody().getNextCursor();
+        ResponseEntity<CursorPage<HoaxVM>> response = getHoaxesByCursor(API_1_0_HOAXES, cursor, 3, new ParameterizedTypeReference<>(){});
+        List<HoaxVM> content = response.getBody().getContent();
+        assertThat(content.size()).isEqualTo(2);
+        assertThat(content.get(0).getId()).isGreaterThan(content.get(1).getId());
+        assertThat(response.getBody().isNext()).isFalse();
+        assertThat(response.getBody().getNextCursor()).isNull();
+    }
+
+    @Test
+    public void getHoaxesOfUserByCursor_whenMultipleUsersHaveHoaxes_receiveOnlyHoaxesOfUser() {
+        User user1 = userService.save(TestUtils.createValidUser("user1"));
+        User user2 = userService.save(TestUtils.createValidUser("user2"));
+        IntStream.rangeClosed(1, 3).forEach(i -> hoaxService.save(user1, TestUtils.createValidHoax()));
+        IntStream.rangeClosed(1, 2).forEach(i -> hoaxService.save(user2, TestUtils.createValidHoax()));
+
+        ResponseEntity<CursorPage<HoaxVM>> response = getHoaxesByCursor("/api/1.0/users/user2/hoaxes", "", 10, new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody().getContent()).extracting(hoax -> hoax.getUser().getUsername()).containsOnly("user2");
+        assertThat(response.getBody().getContent().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void getHoaxesByCursor_whenCursorIsInvalid_receiveBadRequest() {
+        ResponseEntity<Object> response = getHoaxesByCursor(API_1_0_HOAXES, "not-a-cursor", 10, new ParameterizedTypeReference<>(){});
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void streamHoaxes_whenHoaxIsSaved_receiveHoaxEvent() throws Exception {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        MvcResult result = mockMvc.perform(get(API_1_0_HOAXES + "/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        Hoax hoax = hoaxService.save(user, TestUtils.createValidHoax());
+
+        String content = awaitStreamContent(result, "id:" + hoax.getId());
+        assertThat(content).contains("event:hoax").contains("\"username\":\"user1\"");
+    }
+
+    @Test
+    public void streamHoaxesOfUser_whenHoaxesOfOtherUsersAreSaved_receiveOnlyHoaxesOfUser() throws Exception {
+        User user1 = userService.save(TestUtils.createValidUser("user1"));
+        User user2 = userService.save(TestUtils.createValidUser("user2"));
+        MvcResult result = mockMvc.perform(get("/api/1.0/users/user2/hoaxes/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        Hoax ofUser1 = hoaxService.save(user1, TestUtils.createValidHoax());
+        Hoax ofUser2 = hoaxService.save(user2, TestUtils.createValidHoax());
+
+        String content = awaitStreamContent(result, "id:" + ofUser2.getId());
+        assertThat(content).doesNotContain("id:" + ofUser1.getId() + "\n");
+    }
+
+    /**
+     * Waits until the event starting with {@code expected} is fully written, the emitter flushes it in several parts.
+     */
+    private String awaitStreamContent(MvcResult result, String expected) throws Exception {
+        String content = result.getResponse().getContentAsString();
+        for (int i = 0; i < 50 && !isCompleteEvent(content, expected); i++) {
+            Thread.sleep(20);
+            content = result.getResponse().getContentAsString();
+        }
+        assertThat(content).contains(expected);
+        return content;
+    }
+
+    private static boolean isCompleteEvent(String content, String expected) {
+        int start = content.indexOf(expected);
+        return start >= 0 && content.indexOf("\n\n", start) > 0;
+    }
+
+    private <T> ResponseEntity<T> getHoaxesByCursor(String basePath, String cursor, int size, ParameterizedTypeReference<T> responseType) {
+        String path = basePath + "?cursor=" + cursor + "&size=" + size;
+        return testRestTemplate.exchange(path, HttpMethod.GET,null, responseType);
+    }
+
     private <T> ResponseEntity<T> getNewHoaxes(long hoaxId, ParameterizedTypeReference<T> responseType) {
         String path = API_1_0_HOAXES + "/" + hoaxId + "?direction=after&sort=id,desc";
         return testRestTemplate.exchange(path, HttpMethod.GET,null, responseType);
@@ -512,8 +962,19 @@ public class HoaxControllerTest {
         return testRestTemplate.postForEntity(API_1_0_HOAXES, hoax, responseType);
     }
 
+    private <T> ResponseEntity<T> importHoaxes(String ndjson, Class<T> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+        return testRestTemplate.postForEntity(API_1_0_HOAXES + "/import", new HttpEntity<>(ndjson, headers), responseType);
+    }
+
     private void authenticate(String username) {
         testRestTemplate.getRestTemplate().getInterceptors().add(
                 new BasicAuthenticationInterceptor(username, "P4ssword"));
     }
+
+    @AfterEach
+    void cleanupAfter() {
+        hoaxRepository.deleteAll();
+    }
 }
@@ -0,0 +1,179 @@
+package com.hoaxify.hoaxify;
+
+import com.hoaxify.hoaxify.hoax.Hoax;
+import com.hoaxify.hoaxify.hoax.HoaxRepository;
+import com.hoaxify.hoaxify.user.User;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@code EXPLAIN} on the SQL the feed queries generate and fails when H2 plans a scan of the hoax table.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.hoaxify.hoaxify.HoaxRepositoryQueryPlanTest$RecordingInspector")
+@ActiveProfiles("test")
+public class HoaxRepositoryQueryPlanTest {
+
+    private static final String HOAX_TABLE_SCAN = "PUBLIC.HOAX.tableScan";
+
+    // H2 comments every table with the index it reads and the conditions it looks up by
+    private static final Pattern USER_INDEX_LOOKUP = Pattern.compile("/\\* PUBLIC\\.\\w+: [^*]*USER_ID = ");
+
+    private static final Pageable NEWEST_FIRST = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id"));
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @Autowired
+    HoaxRepository hoaxRepository;
+
+    long userId;
+
+    long middleId;
+
+    @BeforeEach
+    public void setUp() {
+        List<Hoax> hoaxes = new ArrayList<>();
+        for (int u = 0; u < 4; u++) {
+            User user = testEntityManager.persist(TestUtils.createValidUser("user" + u));
+            userId = user.getId();
+            for (int i = 0; i < 250; i++) {
+                Hoax hoax = TestUtils.createValidHoax();
+                hoax.setUser(user);
+                hoax.setTimestamp(new Date());
+                hoaxes.add(testEntityManager.persist(hoax));
+            }
+        }
+        middleId = hoaxes.get(hoaxes.size() / 2).getId();
+        testEntityManager.flush();
+        testEntityManager.clear();
+        RecordingInspector.clear();
+    }
+
+    @Test
+    public void findSliceBy_newestFirst_doesNotScanHoaxTable() {
+        hoaxRepository.findSliceBy(NEWEST_FIRST);
+        assertNoHoaxTableScan();
+    }
+
+    @Test
+    public void findSliceByUserId_newestFirst_usesUserIndex() {
+        hoaxRepository.findSliceByUserId(userId, NEWEST_FIRST);
+        assertUserIndexLookup(1);
+    }
+
+    @Test
+    public void findByUserId_pageWithCount_usesUserIndex() {
+        hoaxRepository.findByUserId(userId, NEWEST_FIRST);
+        assertUserIndexLookup(2);
+    }
+
+    @Test
+    public void findByIdLessThan_newestFirst_doesNotScanHoaxTable() {
+        hoaxRepository.findByIdLessThan(middleId, NEWEST_FIRST);
+        assertNoHoaxTableScan();
+    }
+
+    @Test
+    public void findByUserIdAndIdLessThan_newestFirst_usesUserIndex() {
+        hoaxRepository.findByUserIdAndIdLessThan(userId, middleId, NEWEST_FIRST);
+        assertUserIndexLookup(1);
+    }
+
+    @Test
+    public void findByIdGreaterThan_oldestFirst_doesNotScanHoaxTable() {
+        hoaxRepository.findByIdGreaterThan(middleId, PageRequest.of(0, 10, Sort.by("id")));
+        assertNoHoaxTableScan();
+    }
+
+    @Test
+    public void findByUserIdAndIdGreaterThan_oldestFirst_usesUserIndex() {
+        hoaxRepository.findByUserIdAndIdGreaterThan(userId, middleId, PageRequest.of(0, 10, Sort.by("id")));
+        assertUserIndexLookup(1);
+    }
+
+    @Test
+    public void findAllBySpecification_userAndIdGreaterThan_usesUserIndex() {
+        Specification<Hoax> spec = Specification.<Hoax>where((root, query, cb) -> cb.greaterThan(root.get("id"), middleId))
+                .and((root, query, cb) -> cb.equal(root.get("user").get("id"), userId));
+        hoaxRepository.findAll(spec, Sort.by(Sort.Direction.DESC, "id"));
+        hoaxRepository.count(spec);
+        assertUserIndexLookup(2);
+    }
+
+    @Test
+    public void countByUserId_usesUserIndex() {
+        hoaxRepository.countByUserId(userId);
+        assertUserIndexLookup(1);
+    }
+
+    private void assertNoHoaxTableScan() {
+        assertThat(plans()).isNotEmpty().noneMatch(plan -> plan.contains(HOAX_TABLE_SCAN));
+    }
+
+    private void assertUserIndexLookup(int statements) {
+        assertThat(plans()).hasSize(statements).allMatch(plan -> USER_INDEX_LOOKUP.matcher(plan).find());
+    }
+
+    private List<String> plans() {
+        List<String> plans = new ArrayList<>();
+        Session session = testEntityManager.getEntityManager().unwrap(Session.class);
+        for (String sql : RecordingInspector.statements()) {
+            session.doWork(connection -> {
+                try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                    for (int i = 1; i <= explain.getParameterMetaData().getParameterCount(); i++) {
+                        explain.setLong(i, 1);
+                    }
+                    try (ResultSet plan = explain.executeQuery()) {
+                        plan.next();
+                        plans.add(plan.getString(1));
+                    }
+                }
+            });
+        }
+        return plans;
+    }
+
+    public static class RecordingInspector implements StatementInspector {
+
+        private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        static void clear() {
+            STATEMENTS.clear();
+        }
+
+        static List<String> statements() {
+            synchronized (STATEMENTS) {
+                return new ArrayList<>(STATEMENTS);
+            }
+        }
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.toLowerCase().startsWith("select")) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
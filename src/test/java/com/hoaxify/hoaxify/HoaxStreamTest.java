@@ -0,0 +1,122 @@
+package com.hoaxify.hoaxify;
+
+import com.hoaxify.hoaxify.configuration.AppConfiguration;
+import com.hoaxify.hoaxify.hoax.HoaxStream;
+import com.hoaxify.hoaxify.hoax.vm.HoaxVM;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class HoaxStreamTest {
+
+    BlockingEmitter emitter = new BlockingEmitter();
+
+    HoaxStream stream;
+
+    @BeforeEach
+    public void setUp() {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setStreamQueueCapacity(2);
+        appConfiguration.setStreamDispatcherThreads(1);
+        appConfiguration.setStreamHeartbeat(Duration.ofMinutes(1));
+        appConfiguration.setStreamSendTimeout(Duration.ofMillis(200));
+        stream = new HoaxStream(appConfiguration) {
+            @Override
+            protected SseEmitter newEmitter(long timeoutMillis) {
+                return emitter;
+            }
+        };
+        stream.subscribe(null);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        emitter.unblock.countDown();
+    }
+
+    @Test
+    public void publish_whenSubscriberQueueOverflowsDuringBlockedSend_returnsWithoutWaitingForSend() throws Exception {
+        stream.publish(createHoax(1));
+        assertThat(emitter.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            for (int i = 2; i < 10; i++) {
+                stream.publish(createHoax(i));
+            }
+        });
+    }
+
+    @Test
+    public void publish_whenSendBlocksLongerThanSendTimeout_returnsWithoutWaitingForSend() throws Exception {
+        stream.publish(createHoax(1));
+        assertThat(emitter.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(500);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> stream.publish(createHoax(2)));
+    }
+
+    @Test
+    public void publish_whenBlockedSendReturnsAfterSubscriberWasDropped_completesEmitterOnDispatcherThread() throws Exception {
+        stream.publish(createHoax(1));
+        assertThat(emitter.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 2; i < 10; i++) {
+            stream.publish(createHoax(i));
+        }
+        assertThat(emitter.completed.getCount()).isEqualTo(1);
+
+        emitter.unblock.countDown();
+
+        assertThat(emitter.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(emitter.sends.get()).isEqualTo(1);
+    }
+
+    private HoaxVM createHoax(long id) {
+        HoaxVM hoax = new HoaxVM();
+        hoax.setId(id);
+        return hoax;
+    }
+
+    /**
+     * Blocks inside {@code send} while holding the emitter's lock, the way a write to a stalled client does.
+     */
+    static class BlockingEmitter extends SseEmitter {
+
+        final CountDownLatch sending = new CountDownLatch(1);
+
+        final CountDownLatch unblock = new CountDownLatch(1);
+
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        final AtomicInteger sends = new AtomicInteger();
+
+        @Override
+        public synchronized void send(SseEventBuilder builder) {
+            sends.incrementAndGet();
+            sending.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed.countDown();
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.hoaxify.hoaxify;
+
+import com.hoaxify.hoaxify.hoax.Hoax;
+import com.hoaxify.hoaxify.hoax.HoaxRepository;
+import com.hoaxify.hoaxify.user.User;
+import com.hoaxify.hoaxify.user.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hoax inserts per second through {@code saveAll} in one transaction, the path of the seeder, imports and group
+ * commit. {@code allocationSize=1, batchSize=1} is the previous setup: a sequence call and an insert statement per
+ * row. Run {@link #main} from the IDE or with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertThroughputBenchmark {
+
+    private static final int ROWS = 500;
+
+    @Param({"1", "50"})
+    int allocationSize;
+
+    @Param({"1", "50"})
+    int batchSize;
+
+    ConfigurableApplicationContext context;
+
+    HoaxRepository hoaxRepository;
+
+    TransactionTemplate transactionTemplate;
+
+    User user;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(HoaxifyApplication.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        "hoaxify.id-allocation-size=" + allocationSize,
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                        "spring.jpa.properties.hibernate.generate_statistics=false")
+                .run();
+        hoaxRepository = context.getBean(HoaxRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        user = context.getBean(UserService.class).save(TestUtils.createValidUser("benchmark"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Hoax> insertHoaxes() {
+        List<Hoax> hoaxes = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Hoax hoax = TestUtils.createValidHoax();
+            hoax.setTimestamp(new Date());
+            hoax.setUser(user);
+            hoaxes.add(hoax);
+        }
+        return transactionTemplate.execute(status -> hoaxRepository.saveAll(hoaxes));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InsertThroughputBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -1,15 +1,19 @@
 package com.hoaxify.hoaxify;
 
 import com.hoaxify.hoaxify.error.ApiError;
+import com.hoaxify.hoaxify.hoax.HoaxRepository;
 import com.hoaxify.hoaxify.user.User;
 import com.hoaxify.hoaxify.user.UserRepository;
 import com.hoaxify.hoaxify.user.UserService;
+import com.hoaxify.hoaxify.user.vm.UserUpdateVM;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -35,8 +39,12 @@ public class LoginControllerTest {
     @Autowired
     UserService userService;
 
+    @Autowired
+    HoaxRepository hoaxRepository;
+
     @BeforeEach
     void cleanup() {
+        hoaxRepository.deleteAll();
         userRepository.deleteAll();
         testRestTemplate.getRestTemplate().getInterceptors().clear();
     }
@@ -134,6 +142,86 @@ public class LoginControllerTest {
         assertThat(body.containsKey("password")).isFalse();
     }
 
+    @Test
+    public void postLogin_withValidCredentials_receiveToken() {
+        userService.save(TestUtils.createValidUser());
+        authenticate();
+        ResponseEntity<Map<String, Object>> response = login(new ParameterizedTypeReference<>() {});
+
+        Map<String, Object> body = response.getBody();
+        assertThat((String) body.get("token")).isNotBlank();
+        assertThat((Long) body.get("tokenExpiresAt")).isGreaterThan(System.currentTimeMillis());
+    }
+
+    @Test
+    public void postHoax_withValidToken_receiveOk() {
+        String token = loginAndGetToken();
+        ResponseEntity<Object> response = postHoaxWithToken(token);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void postHoax_withTamperedToken_receiveUnauthorized() {
+        String token = loginAndGetToken();
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        ResponseEntity<Object> response = postHoaxWithToken(tampered);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    public void postHoax_withTokenAfterLogout_receiveUnauthorized() {
+        String token = loginAndGetToken();
+        testRestTemplate.exchange("/api/1.0/logout", HttpMethod.POST, new HttpEntity<>(bearer(token)), Object.class);
+
+        ResponseEntity<Object> response = postHoaxWithToken(token);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    public void postHoax_withTokenFromLoginRightAfterLogout_receiveOk() {
+        String token = loginAndGetToken();
+        testRestTemplate.exchange("/api/1.0/logout", HttpMethod.POST, new HttpEntity<>(bearer(token)), Object.class);
+        authenticate();
+        ResponseEntity<Map<String, Object>> response = login(new ParameterizedTypeReference<>() {});
+        testRestTemplate.getRestTemplate().getInterceptors().clear();
+
+        ResponseEntity<Object> posted = postHoaxWithToken((String) response.getBody().get("token"));
+        assertThat(posted.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void postHoax_withTokenAfterProfileUpdate_receiveOk() {
+        String token = loginAndGetToken();
+        long id = userRepository.findByUsername("test-user").getId();
+        UserUpdateVM update = new UserUpdateVM();
+        update.setDisplayName("new-display-name");
+        ResponseEntity<Object> updated = testRestTemplate.exchange("/api/1.0/users/" + id, HttpMethod.PUT,
+                new HttpEntity<>(update, bearer(token)), Object.class);
+        assertThat(updated.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        ResponseEntity<Object> response = postHoaxWithToken(token);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    private String loginAndGetToken() {
+        userService.save(TestUtils.createValidUser());
+        authenticate();
+        ResponseEntity<Map<String, Object>> response = login(new ParameterizedTypeReference<>() {});
+        testRestTemplate.getRestTemplate().getInterceptors().clear();
+        return (String) response.getBody().get("token");
+    }
+
+    private ResponseEntity<Object> postHoaxWithToken(String token) {
+        return testRestTemplate.exchange("/api/1.0/hoaxes", HttpMethod.POST,
+                new HttpEntity<>(TestUtils.createValidHoax(), bearer(token)), Object.class);
+    }
+
+    private HttpHeaders bearer(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return headers;
+    }
+
     private void authenticate() {
         testRestTemplate.getRestTemplate().getInterceptors().add(
                 new BasicAuthenticationInterceptor("test-user", "P4ssword"));
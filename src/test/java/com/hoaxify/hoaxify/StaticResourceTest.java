@@ -14,9 +14,13 @@ import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -79,6 +83,19 @@ public class StaticResourceTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void getStaticFile_whenImageExistInShardedProfileFolder_receiveOk() throws Exception {
+        String fileName = "profile-picture.png";
+        File source = new ClassPathResource("profile.png").getFile();
+        File target = new File(appConfiguration.getFullProfileImagesPath() + "/pr/of/" + fileName);
+        FileUtils.copyFile(source, target);
+        mockMvc.perform(
+                        get("/images/{profileImagesFolder}/{fileName}",
+                                appConfiguration.getProfileImagesFolder(),
+                                fileName))
+                .andExpect(status().isOk());
+    }
+
     @Test
     public void getStaticFile_whenImageDoesNotExist_receiveNotFound() throws Exception {
         mockMvc.perform(get("/images/{attachmentsFolder}/there-is-no-such-image.png",
@@ -102,6 +119,92 @@ public class StaticResourceTest {
         assertThat(cacheControl).containsIgnoringCase("max-age=31536000"); // 1 year of cache
     }
 
+    @Test
+    public void getStaticFile_whenIfNoneMatchHasCurrentETag_receiveNotModified() throws Exception {
+        String fileName = "etag-picture.png";
+        FileUtils.copyFile(new ClassPathResource("profile.png").getFile(),
+                new File(appConfiguration.getFullProfileImagesPath() + "/" + fileName));
+        String etag = mockMvc.perform(get("/images/{folder}/{fileName}", appConfiguration.getProfileImagesFolder(), fileName))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).startsWith("\"");
+
+        mockMvc.perform(get("/images/{folder}/{fileName}", appConfiguration.getProfileImagesFolder(), fileName)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+    }
+
+    @Test
+    public void getStaticFile_whenImageWasServedBefore_receiveItFromMemory() throws Exception {
+        String fileName = "hot-picture.png";
+        File target = new File(appConfiguration.getFullProfileImagesPath() + "/" + fileName);
+        FileUtils.copyFile(new ClassPathResource("profile.png").getFile(), target);
+        mockMvc.perform(get("/images/{folder}/{fileName}", appConfiguration.getProfileImagesFolder(), fileName))
+                .andExpect(status().isOk());
+        FileUtils.forceDelete(target);
+
+        mockMvc.perform(get("/images/{folder}/{fileName}", appConfiguration.getProfileImagesFolder(), fileName))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile())));
+    }
+
+    @Test
+    public void getStaticFile_whenFileIsLargerThanCacheEntryLimit_receiveFullContent() throws Exception {
+        byte[] large = new byte[(int) appConfiguration.getImageCacheMaxEntrySize().toBytes() + 1024];
+        new Random(1).nextBytes(large);
+        FileUtils.writeByteArrayToFile(new File(appConfiguration.getFullAttachmentsPath() + "/large.bin"), large);
+        mockMvc.perform(get("/images/{folder}/large.bin", appConfiguration.getAttachmentsFolder()))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(large));
+    }
+
+    @Test
+    public void getStaticFile_whenRangeIsRequested_receivePartialContent() throws Exception {
+        byte[] large = new byte[(int) appConfiguration.getImageCacheMaxEntrySize().toBytes() + 1024];
+        new Random(2).nextBytes(large);
+        FileUtils.writeByteArrayToFile(new File(appConfiguration.getFullAttachmentsPath() + "/ranged.bin"), large);
+        mockMvc.perform(get("/images/{folder}/ranged.bin", appConfiguration.getAttachmentsFolder())
+                        .header("Range", "bytes=100-199"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 100-199/" + large.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(large, 100, 200)));
+    }
+
+    @Test
+    public void getStaticFile_whenSuffixRangeIsRequestedFromCachedFile_receiveLastBytes() throws Exception {
+        byte[] image = FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile());
+        FileUtils.writeByteArrayToFile(new File(appConfiguration.getFullProfileImagesPath() + "/suffix.png"), image);
+        mockMvc.perform(get("/images/{folder}/suffix.png", appConfiguration.getProfileImagesFolder()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Accept-Ranges", "bytes"));
+        mockMvc.perform(get("/images/{folder}/suffix.png", appConfiguration.getProfileImagesFolder())
+                        .header("Range", "bytes=-10"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(Arrays.copyOfRange(image, image.length - 10, image.length)));
+    }
+
+    @Test
+    public void getStaticFile_whenRangeStartsAfterEnd_receiveRangeNotSatisfiable() throws Exception {
+        byte[] image = FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile());
+        FileUtils.writeByteArrayToFile(new File(appConfiguration.getFullProfileImagesPath() + "/short.png"), image);
+        mockMvc.perform(get("/images/{folder}/short.png", appConfiguration.getProfileImagesFolder())
+                        .header("Range", "bytes=" + image.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */" + image.length));
+    }
+
+    @Test
+    public void getStaticFile_whenIfRangeDoesNotMatch_receiveFullContent() throws Exception {
+        byte[] image = FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile());
+        FileUtils.writeByteArrayToFile(new File(appConfiguration.getFullProfileImagesPath() + "/changed.png"), image);
+        mockMvc.perform(get("/images/{folder}/changed.png", appConfiguration.getProfileImagesFolder())
+                        .header("Range", "bytes=0-9")
+                        .header("If-Range", "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(image));
+    }
+
     @AfterEach
     public void cleanup() throws IOException {
         FileUtils.cleanDirectory(new File(appConfiguration.getFullProfileImagesPath()));
@@ -2,12 +2,16 @@ package com.hoaxify.hoaxify;
 
 import com.hoaxify.hoaxify.configuration.AppConfiguration;
 import com.hoaxify.hoaxify.error.ApiError;
+import com.hoaxify.hoaxify.error.NotFoundException;
 import com.hoaxify.hoaxify.shared.GenericResponse;
 import com.hoaxify.hoaxify.user.User;
 import com.hoaxify.hoaxify.user.UserRepository;
 import com.hoaxify.hoaxify.user.UserService;
 import com.hoaxify.hoaxify.user.vm.UserUpdateVM;
 import com.hoaxify.hoaxify.user.vm.UserVM;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,12 +22,20 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.support.BasicAuthenticationInterceptor;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 
+import javax.persistence.EntityManagerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.Base64;
@@ -34,6 +46,7 @@ import java.util.stream.IntStream;
 
 import static com.hoaxify.hoaxify.TestUtils.createValidUser;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -48,6 +61,10 @@ public class UserControllerTest {
     UserService userService;
     @Autowired
     AppConfiguration appConfiguration;
+    @Autowired
+    MeterRegistry meterRegistry;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
 
     @BeforeEach
     void cleanup() {
@@ -247,6 +264,47 @@ public class UserControllerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
     }
 
+    @Test
+    public void postUser_whenUsernameWasNeverTaken_noUsernameLookupQueries() {
+        User user = createValidUser();
+        user.setUsername("fresh-" + System.nanoTime());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ResponseEntity<Object> response = postSignup(user, Object.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statistics.getQueryExecutionCount()).isZero();
+    }
+
+    @Test
+    public void saveAll_whenManyUsersAreSeeded_insertsThemInOneBatchWithPooledIds() {
+        List<User> users = IntStream.rangeClosed(1, 20)
+                .mapToObj(i -> TestUtils.createValidUser("seeded" + i))
+                .collect(Collectors.toList());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<User> saved = userService.saveAll(users);
+
+        // at most two sequence calls for the id block plus one batched insert, instead of one of each per user
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+        assertThat(saved).extracting(User::getId).doesNotHaveDuplicates();
+        assertThat(userRepository.count()).isEqualTo(20);
+    }
+
+    @Test
+    public void postUser_whenUsernameTakenBehindTheFilter_receiveMessageOfDuplicateUsername() {
+        User user = createValidUser();
+        user.setUsername("unseen-" + System.nanoTime());
+        userRepository.save(user);
+        User duplicate = createValidUser();
+        duplicate.setUsername(user.getUsername());
+        ResponseEntity<ApiError> response = postSignup(duplicate, ApiError.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody().getValidationErrors().get("username")).isEqualTo("Это имя пользователя занято");
+    }
+
     @Test
     public void postUser_whenAnotherUserHasSameUsername_receiveMessageOfDuplicateUsername() {
         userRepository.save(createValidUser());
@@ -295,6 +353,18 @@ public class UserControllerTest {
         assertThat(response.getBody().getContent().size()).isEqualTo(3);
     }
 
+    @Test
+    public void getUsers_whenTotalsAreNotRequested_receiveSliceWithoutTotals() {
+        IntStream.rangeClosed(1, 4)
+                .mapToObj(i -> "test-user-" + i)
+                .map(TestUtils::createValidUser)
+                .forEach(userRepository::save);
+        String path = API_1_0_USERS + "?size=3&totals=none";
+        ResponseEntity<Map<String, Object>> response = getUsers(path, new ParameterizedTypeReference<>(){});
+        assertThat(response.getBody()).doesNotContainKey("totalElements");
+        assertThat(response.getBody().get("next")).isEqualTo(true);
+    }
+
     @Test
     public void getUsers_whenPageSizeNotProvided_receivePageSizeAs10() {
         ResponseEntity<TestPage<Object>> response = getUsers(new ParameterizedTypeReference<>(){});
@@ -421,6 +491,66 @@ public class UserControllerTest {
         assertThat(response.getBody().getDisplayName()).isEqualTo(updateUser.getDisplayName());
     }
 
+    @Test
+    public void getProjectionByUsername_whenUserWasDeletedAfterLookup_throwsNotFound() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        userService.getProjectionByUsername("user1");
+
+        userRepository.delete(user);
+
+        assertThatThrownBy(() -> userService.getProjectionByUsername("user1")).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    public void getByUsername_whenUserWasLoadedBefore_servedFromSecondLevelCache() {
+        userService.save(TestUtils.createValidUser("user1"));
+        userService.getByUsername("user1");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        double hitsBefore = userCacheHits(User.USERNAME_CACHE);
+
+        User inDB = userService.getByUsername("user1");
+
+        assertThat(inDB.getUsername()).isEqualTo("user1");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(userCacheHits(User.USERNAME_CACHE)).isGreaterThan(hitsBefore);
+    }
+
+    @Test
+    public void putUser_whenDisplayNameIsUpdated_cachedUserIsUpdated() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        userService.getByUsername("user1");
+        authenticate(user.getUsername());
+
+        putUser(user.getId(), new HttpEntity<>(createValidUserUpdateVM()), Object.class);
+
+        assertThat(userService.getByUsername("user1").getDisplayName()).isEqualTo("newDisplayName");
+    }
+
+    @Test
+    public void postLogin_whenSameUserAuthenticatesTwice_principalServedFromCache() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        authenticate(user.getUsername());
+        testRestTemplate.postForEntity("/api/1.0/login", null, Object.class);
+        double hitsBefore = principalCacheHits();
+
+        testRestTemplate.postForEntity("/api/1.0/login", null, Object.class);
+
+        assertThat(principalCacheHits()).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    public void putUser_whenValidRequestBodyFromAuthorizedUser_nextLoginReceivesUpdatedDisplayName() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        authenticate(user.getUsername());
+        testRestTemplate.postForEntity("/api/1.0/login", null, Object.class);
+        UserUpdateVM updateUser = createValidUserUpdateVM();
+        putUser(user.getId(), new HttpEntity<>(updateUser), Object.class);
+
+        ResponseEntity<UserVM> response = testRestTemplate.postForEntity("/api/1.0/login", null, UserVM.class);
+        assertThat(response.getBody().getDisplayName()).isEqualTo(updateUser.getDisplayName());
+    }
+
     @Test
     public void putUser_withValidRequestBodyWithSupportedImageFromAuthorizedUser_receiveUserVMWithRandomImageName() throws IOException {
         User user = userService.save(TestUtils.createValidUser("user1"));
@@ -451,6 +581,25 @@ public class UserControllerTest {
         assertThat(storedImage.exists()).isTrue();
     }
 
+    @Test
+    public void putUser_whenImageCannotBeStored_receiveServerErrorAndUserKeepsOldImage() throws IOException {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        authenticate(user.getUsername());
+        UserUpdateVM updateUser = createValidUserUpdateVM();
+        updateUser.setImage(readFileToBase64("profile.png"));
+        File profileFolder = new File(appConfiguration.getFullProfileImagesPath());
+        FileUtils.deleteDirectory(profileFolder);
+        try {
+            ResponseEntity<Object> response = putUser(user.getId(), new HttpEntity<>(updateUser), Object.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            profileFolder.mkdirs();
+        }
+        User inDB = userRepository.findByUsername("user1");
+        assertThat(inDB.getImage()).isEqualTo("profile-image.png");
+        assertThat(inDB.getDisplayName()).isEqualTo("test-display");
+    }
+
     @Test
     public void putUser_withInvalidRequestBodyWithNullDisplayNameFromAuthorizedUser_receiveBadRequest() throws IOException {
         User user = userService.save(TestUtils.createValidUser("user1"));
@@ -545,6 +694,155 @@ public class UserControllerTest {
         assertThat(storedImage.exists()).isFalse();
     }
 
+    @Test
+    public void putUserImage_withOctetStreamPngFromAuthorizedUser_imageIsStoredAndUserUpdated() throws IOException {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        authenticate(user.getUsername());
+        byte[] image = FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile());
+
+        ResponseEntity<UserVM> response = putUserImage(user.getId(), octetStream(image), UserVM.class);
+
+        String storedImageName = response.getBody().getImage();
+        File storedImage = new File(appConfiguration.getFullProfileImagesPath() + "/" + storedImageName);
+        assertThat(FileUtils.readFileToByteArray(storedImage)).isEqualTo(image);
+        assertThat(userRepository.findByUsername("user1").getImage()).isEqualTo(storedImageName);
+    }
+
+    @Test
+    public void putUserImage_withMultipartPngFromAuthorizedUser_imageIsStored() throws IOException {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        authenticate(user.getUsername());
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("image", new ClassPathResource("profile.png"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        ResponseEntity<UserVM> response = putUserImage(user.getId(), new HttpEntity<>(body, headers), UserVM.class);
+
+        File storedImage = new File(appConfiguration.getFullProfileImagesPath() + "/" + response.getBody().getImage());
+        assertThat(storedImage.exists()).isTrue();
+    }
+
+    @Test
+    public void putUserImage_whenImageExceedsMaxSize_receivePayloadTooLarge() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        authenticate(user.getUsername());
+        byte[] image = new byte[(int) appConfiguration.getMaxImageSize().toBytes() + 1];
+
+        ResponseEntity<Object> response = putUserImage(user.getId(), octetStream(image), Object.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    public void putUserImage_withUnsupportedFileType_receiveBadRequest() throws IOException {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        authenticate(user.getUsername());
+        byte[] file = FileUtils.readFileToByteArray(new ClassPathResource("test-txt.txt").getFile());
+
+        ResponseEntity<Object> response = putUserImage(user.getId(), octetStream(file), Object.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void putUserImage_whenAnotherUserSendsImageForAnotherUser_receiveForbidden() {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        authenticate(user.getUsername());
+        ResponseEntity<Object> response = putUserImage(user.getId() + 123, octetStream(new byte[1]), Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    public void userVM_whenImageVariantsNotReady_variantsFallBackToOriginal() {
+        User user = TestUtils.createValidUser("user1");
+        user.setImage("original");
+        UserVM vm = new UserVM(user);
+        assertThat(vm.getImageVariants()).containsOnlyKeys("32", "64", "256");
+        assertThat(vm.getImageVariants().values()).containsOnly("original");
+    }
+
+    @Test
+    public void putUserImage_withPngFromAuthorizedUser_resizedVariantsAreGenerated() throws Exception {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        authenticate(user.getUsername());
+        byte[] image = FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile());
+        String storedImageName = putUserImage(user.getId(), octetStream(image), UserVM.class).getBody().getImage();
+
+        UserVM inDB = awaitImageVariants("user1");
+
+        assertThat(inDB.getImageVariants().get("32")).isEqualTo(storedImageName + "_32");
+        BufferedImage variant = ImageIO.read(new File(appConfiguration.getFullProfileImagesPath() + "/" + storedImageName + "_32"));
+        assertThat(variant.getWidth()).isEqualTo(32);
+        assertThat(variant.getHeight()).isEqualTo(32);
+    }
+
+    @Test
+    public void putUserImage_whenImageExceedsPixelLimit_variantsAreNotGenerated() throws Exception {
+        User user = userService.save(TestUtils.createValidUser("user1"));
+        authenticate(user.getUsername());
+        byte[] image = FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile());
+        long maxImagePixels = appConfiguration.getMaxImagePixels();
+        appConfiguration.setMaxImagePixels(100);
+        try {
+            String storedImageName = putUserImage(user.getId(), octetStream(image), UserVM.class).getBody().getImage();
+
+            UserVM inDB = getUsers("user1", UserVM.class).getBody();
+            assertThat(inDB.getImageVariants().values()).containsOnly(storedImageName);
+            assertThat(new File(appConfiguration.getFullProfileImagesPath() + "/" + storedImageName + "_32")).doesNotExist();
+        } finally {
+            appConfiguration.setMaxImagePixels(maxImagePixels);
+        }
+    }
+
+    @Test
+    public void putUserImage_inContentAddressedMode_sharedImageDeletedOnlyWhenUnreferenced() throws IOException {
+        appConfiguration.setContentAddressedImages(true);
+        try {
+            User user1 = userService.save(TestUtils.createValidUser("user1"));
+            User user2 = userService.save(TestUtils.createValidUser("user2"));
+            byte[] png = FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile());
+            byte[] jpg = FileUtils.readFileToByteArray(new ClassPathResource("test-jpg.jpg").getFile());
+            authenticate(user1.getUsername());
+            String shared = putUserImage(user1.getId(), octetStream(png), UserVM.class).getBody().getImage();
+            testRestTemplate.getRestTemplate().getInterceptors().clear();
+            authenticate(user2.getUsername());
+            assertThat(putUserImage(user2.getId(), octetStream(png), UserVM.class).getBody().getImage()).isEqualTo(shared);
+            File sharedFile = new File(appConfiguration.getFullProfileImagesPath() + "/" + shared);
+
+            putUserImage(user2.getId(), octetStream(jpg), UserVM.class);
+            assertThat(sharedFile.exists()).isTrue();
+
+            testRestTemplate.getRestTemplate().getInterceptors().clear();
+            authenticate(user1.getUsername());
+            putUserImage(user1.getId(), octetStream(jpg), UserVM.class);
+            assertThat(sharedFile.exists()).isFalse();
+        } finally {
+            appConfiguration.setContentAddressedImages(false);
+        }
+    }
+
+    private UserVM awaitImageVariants(String username) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        UserVM user = getUsers(username, UserVM.class).getBody();
+        while (user.getImageVariants().get("32").equals(user.getImage()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            user = getUsers(username, UserVM.class).getBody();
+        }
+        return user;
+    }
+
+    private HttpEntity<byte[]> octetStream(byte[] content) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        return new HttpEntity<>(content, headers);
+    }
+
+    public <T> ResponseEntity<T> putUserImage(long id, HttpEntity<?> requestEntity, Class<T> responseType) {
+        String path = API_1_0_USERS + "/" + id + "/image";
+        return testRestTemplate.exchange(path, HttpMethod.PUT, requestEntity, responseType);
+    }
+
     private String readFileToBase64(String fileName) throws IOException {
         ClassPathResource imageResource = new ClassPathResource(fileName);
         byte[] imageArr = FileUtils.readFileToByteArray(imageResource.getFile());
@@ -557,6 +855,14 @@ public class UserControllerTest {
         return updateUser;
     }
 
+    private double userCacheHits(String region) {
+        return meterRegistry.get("cache.gets").tags("cache", region, "result", "hit").functionCounter().count();
+    }
+
+    private double principalCacheHits() {
+        return meterRegistry.get("cache.gets").tags("cache", "principals", "result", "hit").functionCounter().count();
+    }
+
     private void authenticate(String username) {
         testRestTemplate.getRestTemplate().getInterceptors().add(
                 new BasicAuthenticationInterceptor(username, "P4ssword"));